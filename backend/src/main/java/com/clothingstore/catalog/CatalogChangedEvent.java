@@ -0,0 +1,23 @@
+package com.clothingstore.catalog;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Published when products (or their variant stock) change. Listeners run after the
+ * surrounding transaction commits, so they always observe the committed state.
+ */
+public record CatalogChangedEvent(Set<Long> productIds) {
+
+    public CatalogChangedEvent {
+        productIds = Set.copyOf(productIds);
+    }
+
+    public static CatalogChangedEvent of(Long productId) {
+        return new CatalogChangedEvent(Set.of(productId));
+    }
+
+    public static CatalogChangedEvent of(Collection<Long> productIds) {
+        return new CatalogChangedEvent(Set.copyOf(productIds));
+    }
+}
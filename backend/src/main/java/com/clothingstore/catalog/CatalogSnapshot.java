@@ -0,0 +1,228 @@
+package com.clothingstore.catalog;
+
+import com.clothingstore.entity.Product;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Read-only view of the visible catalog, sorted by name, with prebuilt per-category indexes.
+ * A new snapshot is built for every catalog change; readers never see a partially built one.
+ * The {@link Product} entities are shared with the loading query and are not copied, so callers
+ * must treat them as read-only.
+ */
+public final class CatalogSnapshot {
+
+    private static final int MAX_SUGGEST_SCAN = 2000;
+    /** Distinguishes versions across restarts, since the version counter starts over at 1. */
+    private static final String INSTANCE_TAG = Long.toString(System.currentTimeMillis(), 36);
+
+    static final Comparator<Product> BY_NAME = Comparator
+            .comparing(Product::getName, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(Product::getId);
+
+    private final long version;
+    private final Instant builtAt;
+    private final List<Product> products;
+    private final Map<Long, Product> byId;
+    private final Map<String, List<Product>> byCategory;
+    private final PrefixIndex prefixIndex;
+    private final FacetIndex facetIndex;
+    /** Derived orderings, built on first use and then shared by every reader of this version. */
+    private final Map<String, List<Product>> sortedViews = new ConcurrentHashMap<>();
+    private final Map<String, SerializedResponse> serializedResponses = new ConcurrentHashMap<>();
+
+    private CatalogSnapshot(long version, List<Product> sortedProducts, PrefixIndex prefixIndex) {
+        this.version = version;
+        this.builtAt = Instant.now();
+        this.products = List.copyOf(sortedProducts);
+        this.prefixIndex = prefixIndex;
+        this.facetIndex = new FacetIndex(this.products);
+
+        Map<Long, Product> ids = new HashMap<>();
+        Map<String, List<Product>> categories = new LinkedHashMap<>();
+        for (Product p : this.products) {
+            ids.put(p.getId(), p);
+            categories.computeIfAbsent(categoryKey(p.getCategory()), k -> new ArrayList<>()).add(p);
+        }
+        this.byId = Map.copyOf(ids);
+        Map<String, List<Product>> frozen = new LinkedHashMap<>();
+        categories.forEach((k, v) -> frozen.put(k, List.copyOf(v)));
+        this.byCategory = Map.copyOf(frozen);
+    }
+
+    static CatalogSnapshot build(long version, Collection<Product> products) {
+        List<Product> sorted = visibleOnly(products);
+        sorted.sort(BY_NAME);
+        return new CatalogSnapshot(version, sorted, PrefixIndex.build(sorted));
+    }
+
+    /**
+     * Returns a new snapshot with the given products replaced by their reloaded state.
+     * Ids in {@code changedIds} that are absent from {@code reloaded} (deleted) or hidden are dropped.
+     */
+    CatalogSnapshot withChanges(long newVersion, Set<Long> changedIds, Collection<Product> reloaded) {
+        List<Product> visibleReloaded = visibleOnly(reloaded);
+        List<Product> next = new ArrayList<>(products.size() + visibleReloaded.size());
+        for (Product p : products) {
+            if (!changedIds.contains(p.getId())) {
+                next.add(p);
+            }
+        }
+        next.addAll(visibleReloaded);
+        // Input is mostly sorted already, so this is close to linear.
+        next.sort(BY_NAME);
+        return new CatalogSnapshot(newVersion, next, prefixIndex.withChanges(changedIds, visibleReloaded));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getBuiltAt() {
+        return builtAt;
+    }
+
+    /**
+     * Strong ETag for any response derived from this catalog version.
+     */
+    public String getEtag() {
+        return getEtag("");
+    }
+
+    /**
+     * ETag for another representation (e.g. gzip) of the same catalog version.
+     */
+    public String getEtag(String representation) {
+        return "\"" + INSTANCE_TAG + "-" + version + representation + "\"";
+    }
+
+    /**
+     * Returns the response body cached under {@code key} for this version, serializing it on first use.
+     * Callers must only use a bounded set of keys.
+     */
+    public SerializedResponse serialized(String key, Supplier<byte[]> serializer) {
+        return serializedResponses.computeIfAbsent(key, k -> SerializedResponse.of(serializer.get()));
+    }
+
+    /**
+     * True if at least one visible product is in the category (case-insensitive).
+     */
+    public boolean hasCategory(String category) {
+        return byCategory.containsKey(categoryKey(category));
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public Product findById(Long id) {
+        return id != null ? byId.get(id) : null;
+    }
+
+    /**
+     * Visible products in the given category (case-insensitive), sorted by name.
+     */
+    public List<Product> findByCategory(String category) {
+        return byCategory.getOrDefault(categoryKey(category), List.of());
+    }
+
+    /**
+     * Visible products (optionally in one category) in the given order.
+     */
+    public List<Product> sorted(String category, CatalogSort sort) {
+        List<Product> base = category != null ? findByCategory(category) : products;
+        if (sort == CatalogSort.NAME) {
+            return base;
+        }
+        // only cache views of known categories, so client-supplied names cannot grow the map
+        if (category != null && !hasCategory(category)) {
+            return List.of();
+        }
+        String key = sort.name() + "|" + (category != null ? categoryKey(category) : "");
+        return sortedViews.computeIfAbsent(key, k -> {
+            List<Product> copy = new ArrayList<>(base);
+            copy.sort(sort.comparator());
+            return List.copyOf(copy);
+        });
+    }
+
+    /**
+     * Filters by any combination of category, color, in-stock size and price band
+     * (values within a facet are ORed, facets are ANDed). Unknown facet names are ignored.
+     */
+    public FacetResult filter(Map<String, Set<String>> selected) {
+        FacetIndex.Result result = facetIndex.query(selected);
+        List<Product> matched = new ArrayList<>(result.matches().cardinality());
+        for (int i = result.matches().nextSetBit(0); i >= 0; i = result.matches().nextSetBit(i + 1)) {
+            matched.add(products.get(i));
+        }
+        return new FacetResult(List.copyOf(matched), result.counts());
+    }
+
+    /**
+     * Search-as-you-type: visible products with a name, category or color word starting with each
+     * query word. The last word may be partial; results put name-prefix matches first.
+     */
+    public List<Product> suggest(String query, int limit) {
+        List<String> terms = PrefixIndex.tokenize(query);
+        if (terms.isEmpty() || limit < 1) return List.of();
+        String last = terms.get(terms.size() - 1);
+        List<String> others = terms.subList(0, terms.size() - 1);
+
+        String normalizedQuery = String.join(" ", terms);
+        List<Product> nameMatches = new ArrayList<>();
+        List<Product> otherMatches = new ArrayList<>();
+        for (Long id : prefixIndex.lookup(last, MAX_SUGGEST_SCAN)) {
+            Product p = byId.get(id);
+            if (p == null || !matchesAll(p, others)) continue;
+            if (String.join(" ", PrefixIndex.tokenize(p.getName())).startsWith(normalizedQuery)) {
+                nameMatches.add(p);
+            } else {
+                otherMatches.add(p);
+            }
+        }
+        nameMatches.sort(BY_NAME);
+        otherMatches.sort(BY_NAME);
+        nameMatches.addAll(otherMatches);
+        return nameMatches.size() > limit ? List.copyOf(nameMatches.subList(0, limit)) : List.copyOf(nameMatches);
+    }
+
+    private static boolean matchesAll(Product p, List<String> terms) {
+        if (terms.isEmpty()) return true;
+        List<String> words = new ArrayList<>(PrefixIndex.tokenize(p.getName()));
+        words.addAll(PrefixIndex.tokenize(p.getCategory()));
+        words.addAll(PrefixIndex.tokenize(p.getColor()));
+        for (String term : terms) {
+            if (words.stream().noneMatch(w -> w.startsWith(term))) return false;
+        }
+        return true;
+    }
+
+    private static List<Product> visibleOnly(Collection<Product> products) {
+        List<Product> visible = new ArrayList<>(products.size());
+        for (Product p : products) {
+            if (!Boolean.FALSE.equals(p.getVisible())) {
+                visible.add(p);
+            }
+        }
+        return visible;
+    }
+
+    /**
+     * Normalized form under which categories are indexed (trimmed, lower-cased in {@link Locale#ROOT}).
+     */
+    public static String categoryKey(String category) {
+        return category != null ? category.trim().toLowerCase(Locale.ROOT) : "";
+    }
+}
@@ -0,0 +1,147 @@
+package com.clothingstore.catalog;
+
+import com.clothingstore.entity.Product;
+import com.clothingstore.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds the current {@link CatalogSnapshot} and swaps in a rebuilt one after committed catalog
+ * changes. Storefront reads go through {@link #current()} and never touch the database once the
+ * first snapshot is loaded.
+ * <p>
+ * Changes are applied by a single background refresher, so committing threads (checkouts, the
+ * hot-SKU flush, the order ingest worker) only queue ids and never wait for a reload. A burst of
+ * changes that arrives while a refresh is running is applied together by the next one. If a refresh
+ * fails, readers keep the last good snapshot and the refresher retries with a full reload, backing
+ * off while the database is unavailable.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogSnapshotManager {
+
+    private static final long MIN_RETRY_MS = 1_000;
+    private static final long MAX_RETRY_MS = 60_000;
+
+    private final ProductRepository productRepository;
+
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "catalog-refresher");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile CatalogSnapshot snapshot;
+    /** Set when a refresh failed after draining ids: the snapshot is stale until a full reload. */
+    private volatile boolean fullReloadNeeded;
+    private long version;
+    /** Only touched by the refresher thread. */
+    private long retryDelayMs = MIN_RETRY_MS;
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    public CatalogSnapshot current() {
+        CatalogSnapshot s = snapshot;
+        return s != null ? s : loadIfAbsent();
+    }
+
+    /** First read before the startup load finished: only one caller queries, the rest get its result. */
+    private synchronized CatalogSnapshot loadIfAbsent() {
+        CatalogSnapshot s = snapshot;
+        return s != null ? s : reload();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * Queues the changed ids for the refresher. At most one refresh is queued at a time; ids added
+     * before it starts draining are picked up by it, later ones schedule the next.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        pendingIds.addAll(event.productIds());
+        if (refreshQueued.compareAndSet(false, true)) {
+            try {
+                refresher.execute(this::refresh);
+            } catch (RejectedExecutionException e) {
+                // shutting down; nothing will read the snapshot again
+                refreshQueued.set(false);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot from scratch.
+     */
+    public synchronized CatalogSnapshot reload() {
+        pendingIds.clear();
+        List<Product> products = productRepository.findAllVisibleWithVariants();
+        CatalogSnapshot next = CatalogSnapshot.build(++version, products);
+        snapshot = next;
+        fullReloadNeeded = false;
+        log.info("Catalog snapshot v{} loaded with {} products", next.getVersion(), next.getProducts().size());
+        return next;
+    }
+
+    private void refresh() {
+        refreshQueued.set(false);
+        try {
+            applyPending();
+            retryDelayMs = MIN_RETRY_MS;
+        } catch (RuntimeException e) {
+            // the drained ids are lost: keep serving the stale snapshot and retry with a full reload
+            fullReloadNeeded = true;
+            log.error("Catalog snapshot refresh failed, retrying in {} ms", retryDelayMs, e);
+            if (refreshQueued.compareAndSet(false, true)) {
+                try {
+                    refresher.schedule(this::refresh, retryDelayMs, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException rejected) {
+                    refreshQueued.set(false);
+                }
+            }
+            retryDelayMs = Math.min(retryDelayMs * 2, MAX_RETRY_MS);
+        }
+    }
+
+    private synchronized void applyPending() {
+        if (snapshot == null || fullReloadNeeded) {
+            reload();
+            return;
+        }
+        if (pendingIds.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>();
+        for (Iterator<Long> it = pendingIds.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        List<Product> reloaded = productRepository.findAllWithVariantsByIdIn(ids);
+        snapshot = snapshot.withChanges(++version, ids, reloaded);
+        log.debug("Catalog snapshot v{} applied {} changed products", version, ids.size());
+    }
+}
@@ -0,0 +1,63 @@
+package com.clothingstore.catalog;
+
+import com.clothingstore.entity.Product;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Stable storefront sort orders. Every order ends with the product id as a tie-breaker so that
+ * cursors always point at a unique position.
+ */
+public enum CatalogSort {
+
+    NAME(CatalogSnapshot.BY_NAME),
+    PRICE(Comparator.comparing(Product::getPrice).thenComparing(Product::getId)),
+    PRICE_DESC(Comparator.comparing(Product::getPrice).reversed().thenComparing(Product::getId)),
+    NEWEST(Comparator.comparing(Product::getCreatedAt).thenComparing(Product::getId).reversed());
+
+    private final Comparator<Product> comparator;
+
+    CatalogSort(Comparator<Product> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<Product> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Sort key stored in a cursor, besides the id.
+     */
+    public String cursorKey(Product p) {
+        return switch (this) {
+            case NAME -> p.getName();
+            case PRICE, PRICE_DESC -> Double.toString(p.getPrice());
+            case NEWEST -> p.getCreatedAt().toString();
+        };
+    }
+
+    /**
+     * Rebuilds a comparable stand-in for the product a cursor was taken from.
+     */
+    public Product probe(String key, long id) {
+        Product probe = new Product();
+        probe.setId(id);
+        switch (this) {
+            case NAME -> probe.setName(key);
+            case PRICE, PRICE_DESC -> probe.setPrice(Double.parseDouble(key));
+            case NEWEST -> probe.setCreatedAt(LocalDateTime.parse(key));
+        }
+        return probe;
+    }
+
+    public static CatalogSort fromParam(String value) {
+        if (value == null || value.isBlank()) return NAME;
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown sort: " + value);
+        }
+    }
+}
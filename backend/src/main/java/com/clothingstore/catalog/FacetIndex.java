@@ -0,0 +1,131 @@
+package com.clothingstore.catalog;
+
+import com.clothingstore.entity.Product;
+import com.clothingstore.entity.ProductVariant;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * One bitmap per facet value over the snapshot's product ordinals. Filters are bitmap
+ * intersections (OR within a facet, AND across facets) and counts are popcounts.
+ */
+final class FacetIndex {
+
+    static final String CATEGORY = "category";
+    static final String COLOR = "color";
+    static final String SIZE = "size";
+    static final String PRICE = "price";
+
+    static final List<String> FACETS = List.of(CATEGORY, COLOR, SIZE, PRICE);
+
+    private static final double[] PRICE_BAND_BOUNDS = {50, 100, 200};
+    private static final String[] PRICE_BAND_KEYS = {"0-50", "50-100", "100-200", "200+"};
+
+    private final int productCount;
+    /** facet -> normalized value -> bitmap */
+    private final Map<String, Map<String, BitSet>> bitmaps = new LinkedHashMap<>();
+    /** facet -> normalized value -> display label */
+    private final Map<String, Map<String, String>> labels = new LinkedHashMap<>();
+
+    FacetIndex(List<Product> products) {
+        this.productCount = products.size();
+        for (String facet : FACETS) {
+            bitmaps.put(facet, PRICE.equals(facet) ? new LinkedHashMap<>() : new TreeMap<>());
+            labels.put(facet, new TreeMap<>());
+        }
+        // Price bands keep their natural order and are always listed, even when empty
+        for (String band : PRICE_BAND_KEYS) {
+            bitmaps.get(PRICE).put(band, new BitSet(productCount));
+            labels.get(PRICE).put(band, band);
+        }
+        for (int i = 0; i < products.size(); i++) {
+            Product p = products.get(i);
+            add(CATEGORY, p.getCategory(), i);
+            add(COLOR, p.getColor(), i);
+            add(PRICE, priceBand(p.getPrice()), i);
+            if (p.getVariants() != null) {
+                for (ProductVariant v : p.getVariants()) {
+                    if (v.getStock() != null && v.getStock() > 0) {
+                        add(SIZE, v.getSize(), i);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the matching ordinals and, per facet value, how many products would match if that
+     * value were selected together with the selections on the other facets.
+     */
+    Result query(Map<String, Set<String>> selected) {
+        Map<String, BitSet> perFacet = new LinkedHashMap<>();
+        for (String facet : FACETS) {
+            Set<String> values = selected.getOrDefault(facet, Set.of());
+            if (!values.isEmpty()) {
+                perFacet.put(facet, union(facet, values));
+            }
+        }
+
+        BitSet matches = all();
+        perFacet.values().forEach(matches::and);
+
+        Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+        for (String facet : FACETS) {
+            BitSet others = all();
+            perFacet.forEach((f, bits) -> {
+                if (!f.equals(facet)) others.and(bits);
+            });
+            Map<String, Integer> facetCounts = new LinkedHashMap<>();
+            bitmaps.get(facet).forEach((value, bits) -> {
+                BitSet b = (BitSet) bits.clone();
+                b.and(others);
+                facetCounts.put(labels.get(facet).get(value), b.cardinality());
+            });
+            counts.put(facet, facetCounts);
+        }
+        return new Result(matches, counts);
+    }
+
+    record Result(BitSet matches, Map<String, Map<String, Integer>> counts) {
+    }
+
+    private BitSet union(String facet, Set<String> values) {
+        BitSet bits = new BitSet(productCount);
+        for (String value : values) {
+            BitSet b = bitmaps.get(facet).get(normalize(value));
+            if (b != null) bits.or(b);
+        }
+        return bits;
+    }
+
+    private BitSet all() {
+        BitSet bits = new BitSet(productCount);
+        bits.set(0, productCount);
+        return bits;
+    }
+
+    private void add(String facet, String value, int ordinal) {
+        if (value == null || value.isBlank()) return;
+        String key = normalize(value);
+        bitmaps.get(facet).computeIfAbsent(key, k -> new BitSet(productCount)).set(ordinal);
+        labels.get(facet).putIfAbsent(key, value.trim());
+    }
+
+    private static String priceBand(Double price) {
+        if (price == null) return null;
+        for (int i = 0; i < PRICE_BAND_BOUNDS.length; i++) {
+            if (price < PRICE_BAND_BOUNDS[i]) return PRICE_BAND_KEYS[i];
+        }
+        return PRICE_BAND_KEYS[PRICE_BAND_KEYS.length - 1];
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
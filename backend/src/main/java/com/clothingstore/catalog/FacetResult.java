@@ -0,0 +1,12 @@
+package com.clothingstore.catalog;
+
+import com.clothingstore.entity.Product;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Products matching a facet selection plus live counts per facet value.
+ */
+public record FacetResult(List<Product> products, Map<String, Map<String, Integer>> facets) {
+}
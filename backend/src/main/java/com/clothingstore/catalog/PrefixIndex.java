@@ -0,0 +1,117 @@
+package com.clothingstore.catalog;
+
+import com.clothingstore.entity.Product;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable sorted array of normalized tokens (from product name, category and color), each pointing
+ * at a product id. A prefix lookup is a binary search followed by a short forward scan.
+ */
+final class PrefixIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Comparator<Entry> ORDER = Comparator.comparing(Entry::token).thenComparingLong(Entry::productId);
+
+    static final PrefixIndex EMPTY = new PrefixIndex(new String[0], new long[0]);
+
+    private final String[] tokens;
+    private final long[] productIds;
+
+    private PrefixIndex(String[] tokens, long[] productIds) {
+        this.tokens = tokens;
+        this.productIds = productIds;
+    }
+
+    static PrefixIndex build(Collection<Product> products) {
+        return fromSorted(sortedEntries(products));
+    }
+
+    /**
+     * Drops every entry of {@code changedIds} and merges in entries for {@code visibleReloaded}.
+     * Linear in the index size: no re-sort of the untouched entries.
+     */
+    PrefixIndex withChanges(Set<Long> changedIds, Collection<Product> visibleReloaded) {
+        List<Entry> added = sortedEntries(visibleReloaded);
+        List<Entry> merged = new ArrayList<>(tokens.length + added.size());
+        int a = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (changedIds.contains(productIds[i])) continue;
+            Entry kept = new Entry(tokens[i], productIds[i]);
+            while (a < added.size() && ORDER.compare(added.get(a), kept) < 0) {
+                merged.add(added.get(a++));
+            }
+            merged.add(kept);
+        }
+        while (a < added.size()) {
+            merged.add(added.get(a++));
+        }
+        return fromSorted(merged);
+    }
+
+    /**
+     * Distinct product ids having a token that starts with {@code prefix}, in token order.
+     * At most {@code maxScan} index entries are examined.
+     */
+    List<Long> lookup(String prefix, int maxScan) {
+        int i = Arrays.binarySearch(tokens, prefix);
+        if (i < 0) i = -i - 1;
+        Set<Long> ids = new LinkedHashSet<>();
+        for (int scanned = 0; i < tokens.length && scanned < maxScan && tokens[i].startsWith(prefix); i++, scanned++) {
+            ids.add(productIds[i]);
+        }
+        return new ArrayList<>(ids);
+    }
+
+    int size() {
+        return tokens.length;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return List.of();
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> out = new ArrayList<>();
+        for (String t : NON_WORD.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!t.isEmpty()) out.add(t);
+        }
+        return out;
+    }
+
+    private static List<Entry> sortedEntries(Collection<Product> products) {
+        List<Entry> entries = new ArrayList<>();
+        for (Product p : products) {
+            Set<String> productTokens = new LinkedHashSet<>();
+            productTokens.addAll(tokenize(p.getName()));
+            productTokens.addAll(tokenize(p.getCategory()));
+            productTokens.addAll(tokenize(p.getColor()));
+            for (String t : productTokens) {
+                entries.add(new Entry(t, p.getId()));
+            }
+        }
+        entries.sort(ORDER);
+        return entries;
+    }
+
+    private static PrefixIndex fromSorted(List<Entry> entries) {
+        String[] t = new String[entries.size()];
+        long[] ids = new long[entries.size()];
+        for (int i = 0; i < t.length; i++) {
+            t[i] = entries.get(i).token();
+            ids[i] = entries.get(i).productId();
+        }
+        return new PrefixIndex(t, ids);
+    }
+
+    private record Entry(String token, long productId) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.clothingstore.catalog;
+
+import com.clothingstore.entity.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of product detail lookups keyed by id, with a TTL.
+ * "Not found / not visible" results are cached too, for a shorter time. Concurrent misses on
+ * the same id share one load. Entries are dropped when a {@link CatalogChangedEvent} names them, and
+ * a load of a named id that is still running is not stored, since it may predate the change.
+ */
+@Component
+public class ProductDetailCache {
+
+    @Value("${app.product-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.product-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${app.product-cache.negative-ttl-seconds:30}")
+    private long negativeTtlSeconds;
+
+    private final Map<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    private final Map<Long, Load> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cached result for {@code id}, or runs {@code loader} once for all concurrent callers.
+     */
+    public Optional<Product> get(Long id, Function<Long, Optional<Product>> loader) {
+        Optional<Product> cached = lookup(id);
+        if (cached != null) {
+            return cached;
+        }
+
+        Load mine = new Load();
+        Load existing = inFlight.putIfAbsent(id, mine);
+        if (existing != null) {
+            try {
+                return existing.result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+
+        try {
+            Optional<Product> loaded = loader.apply(id);
+            store(id, mine, loaded);
+            mine.result.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            mine.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        synchronized (entries) {
+            for (Long id : event.productIds()) {
+                entries.remove(id);
+                // later callers start a fresh load; the running one finishes but is not stored
+                Load load = inFlight.remove(id);
+                if (load != null) {
+                    load.stale = true;
+                }
+            }
+        }
+    }
+
+    private Optional<Product> lookup(Long id) {
+        synchronized (entries) {
+            Entry e = entries.get(id);
+            if (e == null) return null;
+            if (System.nanoTime() - e.expiresAtNanos > 0) {
+                entries.remove(id);
+                return null;
+            }
+            return e.value;
+        }
+    }
+
+    /** Checked under the same lock as invalidation, so a change to this id either skips or evicts it. */
+    private void store(Long id, Load load, Optional<Product> value) {
+        long ttl = value.isPresent() ? ttlSeconds : negativeTtlSeconds;
+        Entry e = new Entry(value, System.nanoTime() + ttl * 1_000_000_000L);
+        synchronized (entries) {
+            if (!load.stale) {
+                entries.put(id, e);
+            }
+        }
+    }
+
+    private record Entry(Optional<Product> value, long expiresAtNanos) {
+    }
+
+    /** One running load, shared by concurrent misses on its id. */
+    private static final class Load {
+        final CompletableFuture<Optional<Product>> result = new CompletableFuture<>();
+        /** Set under the entries lock when the id is invalidated while loading. */
+        boolean stale;
+    }
+}
@@ -0,0 +1,22 @@
+package com.clothingstore.catalog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A response body serialized once per catalog version, kept both as plain JSON and gzip-compressed.
+ */
+public record SerializedResponse(byte[] json, byte[] gzip) {
+
+    public static SerializedResponse of(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new SerializedResponse(json, out.toByteArray());
+    }
+}
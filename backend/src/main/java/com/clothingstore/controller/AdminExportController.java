@@ -0,0 +1,75 @@
+package com.clothingstore.controller;
+
+import com.clothingstore.service.ExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Warehouse exports, streamed straight from the database. {@code format} is csv (default) or ndjson.
+ */
+@RestController
+@RequestMapping("/api/admin/export")
+@RequiredArgsConstructor
+public class AdminExportController {
+
+    private final ExportService exportService;
+
+    @GetMapping("/products")
+    public void products(
+            @RequestParam(required = false) String cat,
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response) throws IOException {
+        ExportService.Format exportFormat = parseFormat(format);
+        if (exportFormat == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        prepare(response, exportFormat, "products");
+        exportService.exportProducts(cat, exportFormat, response.getOutputStream());
+    }
+
+    /**
+     * Order lines created between {@code from} and {@code to} (ISO dates, both inclusive, both optional),
+     * optionally only those for products in category {@code cat}.
+     */
+    @GetMapping("/orders")
+    public void orders(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String cat,
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response) throws IOException {
+        ExportService.Format exportFormat = parseFormat(format);
+        if (exportFormat == null || (from != null && to != null && from.isAfter(to))) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        prepare(response, exportFormat, "orders");
+        exportService.exportOrders(from, to, cat, exportFormat, response.getOutputStream());
+    }
+
+    private static ExportService.Format parseFormat(String format) {
+        return switch (format.toLowerCase()) {
+            case "csv" -> ExportService.Format.CSV;
+            case "ndjson" -> ExportService.Format.NDJSON;
+            default -> null;
+        };
+    }
+
+    private static void prepare(HttpServletResponse response, ExportService.Format format, String name) {
+        boolean csv = format == ExportService.Format.CSV;
+        response.setContentType(csv ? "text/csv" : "application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(name + "-" + LocalDate.now() + (csv ? ".csv" : ".ndjson"))
+                .build()
+                .toString());
+    }
+}
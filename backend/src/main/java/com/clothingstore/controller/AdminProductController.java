@@ -2,38 +2,71 @@ package com.clothingstore.controller;
 
 import com.clothingstore.dto.BulkDeleteRequest;
 import com.clothingstore.dto.BulkDiscountRequest;
+import com.clothingstore.dto.BulkOperationResult;
 import com.clothingstore.dto.BulkVisibilityRequest;
 import com.clothingstore.dto.CreateProductRequest;
+import com.clothingstore.dto.CursorPage;
+import com.clothingstore.dto.ProductListItemDTO;
 import com.clothingstore.dto.UpdateProductRequest;
 import com.clothingstore.entity.Product;
 import com.clothingstore.service.AdminProductService;
+import com.clothingstore.service.ProductImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/api/admin/products")
 @RequiredArgsConstructor
 public class AdminProductController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final String TEXT_CSV = "text/csv";
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
     private final AdminProductService adminProductService;
+    private final ProductImportService productImportService;
 
     @GetMapping
-    public ResponseEntity<Page<Product>> list(
+    public ResponseEntity<Page<ProductListItemDTO>> list(
             @RequestParam(required = false) String cat,
             @RequestParam(required = false) String search,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<Product> products = adminProductService.getAllProducts(cat, search, pageable);
+        Page<ProductListItemDTO> products = adminProductService.getAllProducts(cat, search, pageable);
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * Cursor mode of the list endpoint, selected by the presence of {@code cursor}
+     * (send it empty for the first page).
+     */
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorPage<ProductListItemDTO>> scroll(
+            @RequestParam(required = false) String cat,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "true") boolean count) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        try {
+            return ResponseEntity.ok(adminProductService.getProductsAfterCursor(cat, search, cursor, pageSize, count));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Product> getById(@PathVariable Long id) {
         try {
@@ -50,6 +83,21 @@ public class AdminProductController {
         return ResponseEntity.status(HttpStatus.CREATED).body(product);
     }
 
+    /**
+     * Streams a CSV or NDJSON body into the catalog. The response is NDJSON written while the
+     * import runs: one line per rejected row, a progress line per committed chunk and a final summary.
+     */
+    @PostMapping(value = "/import", consumes = {TEXT_CSV, APPLICATION_NDJSON})
+    public void importProducts(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ProductImportService.Format format = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.parseMediaType(TEXT_CSV))
+                ? ProductImportService.Format.CSV
+                : ProductImportService.Format.NDJSON;
+        response.setContentType(APPLICATION_NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        productImportService.importProducts(request.getInputStream(), format, response.getOutputStream());
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Product> update(@PathVariable Long id, @Valid @RequestBody UpdateProductRequest request) {
         try {
@@ -61,13 +109,8 @@ public class AdminProductController {
     }
 
     @DeleteMapping("/bulk")
-    public ResponseEntity<Void> bulkDelete(@Valid @RequestBody BulkDeleteRequest request) {
-        try {
-            adminProductService.bulkDelete(request.getProductIds());
-            return ResponseEntity.noContent().build();
-        } catch (RuntimeException e) {
-            return ResponseEntity.notFound().build();
-        }
+    public ResponseEntity<BulkOperationResult> bulkDelete(@Valid @RequestBody BulkDeleteRequest request) {
+        return ResponseEntity.ok(adminProductService.bulkDelete(request.getProductIds()));
     }
 
     @DeleteMapping("/{id}")
@@ -81,22 +124,12 @@ public class AdminProductController {
     }
 
     @PatchMapping("/bulk-visibility")
-    public ResponseEntity<Void> bulkVisibility(@Valid @RequestBody BulkVisibilityRequest request) {
-        try {
-            adminProductService.bulkVisibility(request.getProductIds(), request.getVisible());
-            return ResponseEntity.noContent().build();
-        } catch (RuntimeException e) {
-            return ResponseEntity.notFound().build();
-        }
+    public ResponseEntity<BulkOperationResult> bulkVisibility(@Valid @RequestBody BulkVisibilityRequest request) {
+        return ResponseEntity.ok(adminProductService.bulkVisibility(request.getProductIds(), request.getVisible()));
     }
 
     @PatchMapping("/bulk-discount")
-    public ResponseEntity<Void> bulkDiscount(@Valid @RequestBody BulkDiscountRequest request) {
-        try {
-            adminProductService.bulkDiscount(request.getProductIds(), request.getDiscountPercentage());
-            return ResponseEntity.noContent().build();
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().build();
-        }
+    public ResponseEntity<BulkOperationResult> bulkDiscount(@Valid @RequestBody BulkDiscountRequest request) {
+        return ResponseEntity.ok(adminProductService.bulkDiscount(request.getProductIds(), request.getDiscountPercentage()));
     }
 }
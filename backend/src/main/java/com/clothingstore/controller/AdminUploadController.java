@@ -1,28 +1,40 @@
 package com.clothingstore.controller;
 
+import com.clothingstore.dto.ImageJobStatus;
+import com.clothingstore.service.ImageDerivativeService;
+import com.clothingstore.service.UploadStorage;
+import com.clothingstore.util.ImageSniffer;
 import com.clothingstore.util.InputSanitizer;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InputStream;
 import java.util.Map;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/admin/upload")
+@RequiredArgsConstructor
 public class AdminUploadController {
 
-    private static final String UPLOAD_DIR = "uploads";
+    private final ImageDerivativeService imageDerivativeService;
+    private final UploadStorage uploadStorage;
 
     @Value("${app.base-url:http://localhost:8080}")
     private String baseUrl;
 
-    @PostMapping
+    /**
+     * Multipart upload (field "file"). The container enforces spring.servlet.multipart limits while
+     * receiving; the part is then copied with the same checks as {@link #uploadRaw}.
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<Map<String, String>> upload(@RequestParam("file") MultipartFile file) {
         if (file.isEmpty()) {
             return ResponseEntity.badRequest().build();
@@ -38,18 +50,54 @@ public class AdminUploadController {
             return ResponseEntity.badRequest().build();
         }
 
-        String filename = UUID.randomUUID().toString().replace("-", "") + ext;
+        try (InputStream in = file.getInputStream()) {
+            return store(in, ext);
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
 
+    /**
+     * Raw image body (Content-Type image/jpeg, image/png, image/gif or image/webp), streamed straight
+     * from the socket into the store without any container-side buffering.
+     */
+    @PostMapping(consumes = {MediaType.IMAGE_JPEG_VALUE, MediaType.IMAGE_PNG_VALUE, MediaType.IMAGE_GIF_VALUE, "image/webp"})
+    public ResponseEntity<Map<String, String>> uploadRaw(HttpServletRequest request) {
+        String ext = ImageSniffer.extensionForContentType(request.getContentType());
+        if (ext == null) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+        }
+        if (request.getContentLengthLong() > uploadStorage.getMaxBytes()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
         try {
-            Path uploadPath = Paths.get(UPLOAD_DIR).toAbsolutePath().normalize();
-            Files.createDirectories(uploadPath);
-            Path targetPath = uploadPath.resolve(filename);
-            file.transferTo(targetPath.toFile());
-
-            String url = baseUrl + "/uploads/" + filename;
-            return ResponseEntity.ok(Map.of("url", url));
+            return store(request.getInputStream(), ext);
         } catch (IOException e) {
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    private ResponseEntity<Map<String, String>> store(InputStream in, String ext) throws IOException {
+        UploadStorage.StoredUpload stored;
+        try {
+            stored = uploadStorage.store(in, ext);
+        } catch (MaxUploadSizeExceededException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+        }
+
+        String url = baseUrl + "/uploads/" + stored.filename();
+        ImageJobStatus job = imageDerivativeService.submit(stored.path(), url);
+        return ResponseEntity.ok(Map.of("url", url, "jobId", job.getId()));
+    }
+
+    /**
+     * Progress of the resize job started by an upload (QUEUED, PROCESSING, DONE or FAILED).
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ImageJobStatus> job(@PathVariable String id) {
+        ImageJobStatus job = imageDerivativeService.getJob(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
 }
@@ -2,7 +2,9 @@ package com.clothingstore.controller;
 
 import com.clothingstore.dto.CreateOrderRequest;
 import com.clothingstore.entity.Order;
-import com.clothingstore.service.OrderService;
+import com.clothingstore.service.IdempotencyService;
+import com.clothingstore.service.InsufficientStockException;
+import com.clothingstore.service.OrderIngestService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -14,16 +16,25 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 public class OrderController {
 
-    private final OrderService orderService;
+    private final OrderIngestService orderIngestService;
+    private final IdempotencyService idempotencyService;
 
+    /** Retries carrying the same Idempotency-Key get the first response instead of a second order. */
     @PostMapping
-    public ResponseEntity<?> createOrder(@Valid @RequestBody CreateOrderRequest request) {
+    public ResponseEntity<?> createOrder(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                         @Valid @RequestBody CreateOrderRequest request) {
+        return idempotencyService.execute("orders", idempotencyKey, request, () -> placeOrder(request));
+    }
+
+    /**
+     * Only validation and stock failures are answers to store for the key. Anything else (database,
+     * lock timeout, shutdown) propagates as a 5xx so the claim is released and a retry runs again.
+     */
+    private ResponseEntity<?> placeOrder(CreateOrderRequest request) {
         try {
-            Order order = orderService.createOrder(request);
+            Order order = orderIngestService.submit(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(order);
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(java.util.Map.of("message", e.getMessage()));
-        } catch (RuntimeException e) {
+        } catch (IllegalArgumentException | InsufficientStockException e) {
             return ResponseEntity.badRequest().body(java.util.Map.of("message", e.getMessage()));
         }
     }
@@ -2,7 +2,9 @@ package com.clothingstore.controller;
 
 import com.clothingstore.dto.CreateCheckoutSessionRequest;
 import com.clothingstore.entity.Order;
+import com.clothingstore.service.IdempotencyService;
 import com.clothingstore.service.StripeService;
+import com.stripe.exception.StripeException;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -10,7 +12,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 @RestController
 @RequestMapping("/api/payment")
@@ -18,11 +22,20 @@ import java.util.Map;
 public class PaymentController {
 
     private final StripeService stripeService;
+    private final IdempotencyService idempotencyService;
 
     @PostMapping("/create-checkout-session")
     public ResponseEntity<?> createCheckoutSession(
             Authentication auth,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @Valid @RequestBody CreateCheckoutSessionRequest request) {
+        // the caller is part of the fingerprint: a key replayed by someone else must not return their session URL
+        String caller = auth != null && auth.isAuthenticated() ? auth.getName() : "";
+        return idempotencyService.execute("checkout-session", idempotencyKey, List.of(caller, request),
+                () -> openCheckoutSession(auth, request));
+    }
+
+    private ResponseEntity<?> openCheckoutSession(Authentication auth, CreateCheckoutSessionRequest request) {
         try {
             Order order = stripeService.getOrderById(request.getOrderId());
             String userEmail = getCustomerEmail(auth);
@@ -43,9 +56,10 @@ public class PaymentController {
 
             String url = stripeService.createCheckoutSession(order);
             return ResponseEntity.ok(Map.of("url", url));
-        } catch (RuntimeException e) {
+        } catch (NoSuchElementException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
-        } catch (Exception e) {
+        } catch (StripeException e) {
+            // 5xx: the idempotency claim is released so a retry with the same key tries Stripe again
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("message", e.getMessage()));
         }
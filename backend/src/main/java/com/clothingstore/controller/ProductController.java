@@ -1,29 +1,156 @@
 package com.clothingstore.controller;
 
+import com.clothingstore.catalog.CatalogSnapshot;
+import com.clothingstore.catalog.SerializedResponse;
+import com.clothingstore.dto.CursorPage;
+import com.clothingstore.dto.FacetedProductsResponse;
+import com.clothingstore.dto.ProductListItemDTO;
+import com.clothingstore.dto.ProductSuggestionDTO;
 import com.clothingstore.entity.Product;
 import com.clothingstore.service.ProductService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
 @RequiredArgsConstructor
 public class ProductController {
 
+    private static final int MAX_SEARCH_RESULTS = 50;
+    private static final int MAX_SUGGESTIONS = 20;
+    private static final int MAX_PAGE_SIZE = 48;
+
     private final ProductService productService;
 
+    /**
+     * Writes pre-serialized (and, if accepted, pre-gzipped) bytes for the current catalog version;
+     * no per-request JSON serialization.
+     */
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts(@RequestParam(required = false) String cat) {
-        List<Product> products = productService.getAllProducts(cat);
-        return ResponseEntity.ok(products);
+    public ResponseEntity<byte[]> getAllProducts(@RequestParam(required = false) String cat, WebRequest request) {
+        CatalogSnapshot catalog = productService.getCatalog();
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String etag = catalog.getEtag(gzip ? "-gzip" : "");
+        if (request.checkNotModified(etag, catalog.getBuiltAt().toEpochMilli())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .lastModified(catalog.getBuiltAt())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .cacheControl(CacheControl.noCache().cachePublic())
+                    .build();
+        }
+        SerializedResponse body = productService.getSerializedProducts(catalog, cat);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .lastModified(catalog.getBuiltAt())
+                .cacheControl(CacheControl.noCache().cachePublic())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.gzip());
+        }
+        return response.body(body.json());
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<ProductListItemDTO>> getPage(
+            @RequestParam(required = false) String cat,
+            @RequestParam(defaultValue = "name") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "24") int size,
+            WebRequest request) {
+        CatalogSnapshot catalog = productService.getCatalog();
+        if (request.checkNotModified(catalog.getEtag(), catalog.getBuiltAt().toEpochMilli())) {
+            return notModified(catalog);
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        try {
+            return conditional(catalog).body(productService.getPage(catalog, cat, sort, cursor, pageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/filter")
+    public ResponseEntity<FacetedProductsResponse> filter(
+            @RequestParam(name = "cat", required = false) List<String> categories,
+            @RequestParam(name = "color", required = false) List<String> colors,
+            @RequestParam(name = "size", required = false) List<String> sizes,
+            @RequestParam(name = "price", required = false) List<String> priceBands) {
+        Map<String, List<String>> facets = new LinkedHashMap<>();
+        facets.put("category", categories != null ? categories : List.of());
+        facets.put("color", colors != null ? colors : List.of());
+        facets.put("size", sizes != null ? sizes : List.of());
+        facets.put("price", priceBands != null ? priceBands : List.of());
+        return ResponseEntity.ok(productService.filter(facets));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<Product>> search(
+            @RequestParam String q,
+            @RequestParam(required = false) String cat,
+            @RequestParam(defaultValue = "20") int limit) {
+        int capped = Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS));
+        return ResponseEntity.ok(productService.search(q, cat, capped));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        int capped = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        return ResponseEntity.ok(productService.suggest(q, capped));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Product> getById(@PathVariable Long id) {
+    public ResponseEntity<Product> getById(@PathVariable Long id, WebRequest request) {
+        CatalogSnapshot catalog = productService.getCatalog();
+        if (request.checkNotModified(catalog.getEtag(), catalog.getBuiltAt().toEpochMilli())) {
+            return notModified(catalog);
+        }
         Product product = productService.getById(id);
-        return ResponseEntity.ok(product);
+        return conditional(catalog).body(product);
+    }
+
+    /**
+     * Validators for catalog responses: clients and CDNs may store them but must revalidate,
+     * which costs a 304 with no database access while the catalog version is unchanged.
+     */
+    private static ResponseEntity.BodyBuilder conditional(CatalogSnapshot catalog) {
+        return ResponseEntity.ok()
+                .eTag(catalog.getEtag())
+                .lastModified(catalog.getBuiltAt())
+                .cacheControl(CacheControl.noCache().cachePublic());
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) continue;
+            for (int i = 1; i < parts.length; i++) {
+                if (parts[i].trim().replace(" ", "").matches("q=0(\\.0*)?")) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static <T> ResponseEntity<T> notModified(CatalogSnapshot catalog) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(catalog.getEtag())
+                .lastModified(catalog.getBuiltAt())
+                .cacheControl(CacheControl.noCache().cachePublic())
+                .build();
     }
 }
@@ -3,6 +3,7 @@ package com.clothingstore.controller;
 import com.clothingstore.entity.Order;
 import com.clothingstore.entity.OrderStatus;
 import com.clothingstore.repository.OrderRepository;
+import com.clothingstore.service.ReservationExpiryService;
 import com.stripe.exception.SignatureVerificationException;
 import com.stripe.model.Event;
 import com.stripe.model.checkout.Session;
@@ -24,6 +25,7 @@ public class StripeWebhookController {
     private String webhookSecret;
 
     private final OrderRepository orderRepository;
+    private final ReservationExpiryService reservationExpiryService;
 
     @PostMapping("/webhook")
     public ResponseEntity<String> handleWebhook(
@@ -53,13 +55,18 @@ public class StripeWebhookController {
                 if (orderIdStr != null && !orderIdStr.isBlank()) {
                     try {
                         Long orderId = Long.parseLong(orderIdStr);
-                        Order order = orderRepository.findById(orderId).orElse(null);
-                        if (order != null) {
-                            order.setStatus(OrderStatus.PAID);
-                            orderRepository.save(order);
+                        if (orderRepository.markPaidIfPending(orderId) > 0) {
+                            reservationExpiryService.cancel(orderId);
                             log.info("Order {} marked as PAID via webhook", orderId);
                         } else {
-                            log.warn("Webhook: order {} not found", orderId);
+                            Order order = orderRepository.findById(orderId).orElse(null);
+                            if (order == null) {
+                                log.warn("Webhook: order {} not found", orderId);
+                            } else if (order.getStatus() == OrderStatus.CANCELLED) {
+                                log.warn("Webhook: order {} was paid after its reservation expired; refund required", orderId);
+                            } else {
+                                log.info("Webhook: order {} already {}", orderId, order.getStatus());
+                            }
                         }
                     } catch (NumberFormatException e) {
                         log.warn("Webhook: invalid order_id in metadata: {}", orderIdStr);
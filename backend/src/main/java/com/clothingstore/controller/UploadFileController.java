@@ -0,0 +1,125 @@
+package com.clothingstore.controller;
+
+import com.clothingstore.service.UploadStorage;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+
+/**
+ * Serves uploaded images. Uses Tomcat's sendfile when the connector supports it (the kernel copies
+ * file to socket), otherwise {@code FileChannel.transferTo}. File sizes come from
+ * {@link UploadStorage}'s stat cache, so a revalidation touches no file at all. Supports a
+ * single byte range, ETag revalidation and long-lived immutable caching: upload filenames are
+ * content hashes, never reused for different content, so the filename itself is the ETag.
+ */
+@RestController
+@RequiredArgsConstructor
+public class UploadFileController {
+
+    private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private final UploadStorage uploadStorage;
+
+    @GetMapping("/uploads/{filename}")
+    public void serve(@PathVariable String filename, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        UploadStorage.FileInfo file = uploadStorage.stat(filename);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        long size = file.size();
+        // the name is the SHA-256 of the content, so it is the validator; the mtime is not (dedup refreshes it)
+        String etag = "\"" + filename + "\"";
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_IMMUTABLE);
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_IMMUTABLE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(MediaTypeFactory.getMediaType(filename)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+
+        long start = 0;
+        long end = size;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), etag)) {
+            long[] bounds = parseRange(range, size);
+            if (bounds == UNSATISFIABLE) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + size);
+            }
+        }
+        response.setContentLengthLong(end - start);
+        if ("HEAD".equals(request.getMethod()) || end == start) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat opens and writes the file itself after this request returns
+            request.setAttribute(SENDFILE_FILENAME, file.path().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        file.transferTo(start, end - start, response.getOutputStream());
+    }
+
+    /**
+     * Without If-Range the range always applies; with it, only if the ETag still matches exactly.
+     * No Last-Modified is sent, so a date in If-Range never matches.
+     */
+    private static boolean ifRangeMatches(String ifRange, String etag) {
+        return ifRange == null || ifRange.equals(etag);
+    }
+
+    /**
+     * Parses a single {@code bytes=} range into [start, end) (end exclusive). Returns null to serve
+     * the whole file (malformed or multi-range headers are ignored, as RFC 9110 allows) and
+     * {@link #UNSATISFIABLE} when the range lies outside the file.
+     */
+    static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) return null;
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                if (last.isEmpty()) return null;
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) return UNSATISFIABLE;
+                return new long[]{Math.max(0, size - suffix), size};
+            }
+            long start = Long.parseLong(first);
+            if (start >= size) return UNSATISFIABLE;
+            long end = last.isEmpty() ? size - 1 : Long.parseLong(last);
+            if (end < start) return null;
+            return new long[]{start, Math.min(end, size - 1) + 1};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.clothingstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOperationResult {
+
+    /** Ids the operation was applied to. */
+    private List<Long> applied;
+    /** Requested ids that do not exist; nothing was done for them. */
+    private List<Long> missing;
+}
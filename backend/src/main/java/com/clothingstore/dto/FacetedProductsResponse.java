@@ -0,0 +1,20 @@
+package com.clothingstore.dto;
+
+import com.clothingstore.entity.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetedProductsResponse {
+
+    private List<Product> products;
+    private int total;
+    /** facet name -> value -> number of matching products */
+    private Map<String, Map<String, Integer>> facets;
+}
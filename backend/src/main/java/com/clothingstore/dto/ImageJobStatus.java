@@ -0,0 +1,27 @@
+package com.clothingstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Progress of the derivative job started for an upload.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageJobStatus {
+
+    public enum State { QUEUED, PROCESSING, DONE, FAILED }
+
+    private String id;
+    private String sourceUrl;
+    private State state;
+    private int completed;
+    private int total;
+    /** Derivative name (thumbnail, card, detail) to URL, for those written so far. */
+    private Map<String, String> derivatives;
+    private String error;
+}
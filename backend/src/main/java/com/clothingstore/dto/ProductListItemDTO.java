@@ -0,0 +1,49 @@
+package com.clothingstore.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only product row for list pages. Same JSON shape as the Product entity, but built from a
+ * projection query so listing never triggers per-product variant loads.
+ */
+@Data
+@NoArgsConstructor
+public class ProductListItemDTO {
+
+    private Long id;
+    private String name;
+    private String description;
+    private Double price;
+    private String imageUrl;
+    private String additionalImageUrls;
+    private String category;
+    private String color;
+    private String sizes;
+    private Boolean visible;
+    private String thumbnailUrl;
+    private String cardImageUrl;
+    private String detailImageUrl;
+    private List<VariantDTO> variants = new ArrayList<>();
+
+    public ProductListItemDTO(Long id, String name, String description, Double price, String imageUrl,
+                              String additionalImageUrls, String category, String color, String sizes, Boolean visible,
+                              String thumbnailUrl, String cardImageUrl, String detailImageUrl) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.price = price;
+        this.imageUrl = imageUrl;
+        this.additionalImageUrls = additionalImageUrls;
+        this.category = category;
+        this.color = color;
+        this.sizes = sizes;
+        this.visible = visible;
+        this.thumbnailUrl = thumbnailUrl;
+        this.cardImageUrl = cardImageUrl;
+        this.detailImageUrl = detailImageUrl;
+    }
+}
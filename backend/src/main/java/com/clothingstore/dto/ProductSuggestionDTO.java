@@ -0,0 +1,18 @@
+package com.clothingstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSuggestionDTO {
+
+    private Long id;
+    private String name;
+    private String category;
+    private String color;
+    private Double price;
+    private String imageUrl;
+}
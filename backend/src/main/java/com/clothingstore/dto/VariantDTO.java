@@ -0,0 +1,21 @@
+package com.clothingstore.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariantDTO {
+
+    private Long id;
+
+    @JsonIgnore
+    private Long productId;
+
+    private String size;
+    private Integer stock;
+    private String sku;
+}
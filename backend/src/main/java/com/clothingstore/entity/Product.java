@@ -5,18 +5,20 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = @Index(name = "idx_products_name_id", columnList = "name, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -33,6 +35,16 @@ public class Product {
     @Column(length = 500)
     private String additionalImageUrls;
 
+    /** Resized copies of an uploaded imageUrl, filled in by the image derivative pipeline. */
+    @Column(length = 500)
+    private String thumbnailUrl;
+
+    @Column(length = 500)
+    private String cardImageUrl;
+
+    @Column(length = 500)
+    private String detailImageUrl;
+
     @Column(nullable = false)
     private String category;
 
@@ -44,6 +56,10 @@ public class Product {
     @Column(nullable = false, columnDefinition = "boolean default true")
     private Boolean visible = true;
 
+    /** Creation order for the "newest" sort; ids come from pooled-lo blocks and do not follow it. */
+    @Column(nullable = false, updatable = false, columnDefinition = "timestamp default now()")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
     private List<ProductVariant> variants = new ArrayList<>();
 }
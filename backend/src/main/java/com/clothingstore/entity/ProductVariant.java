@@ -7,14 +7,17 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "product_variants", uniqueConstraints = @UniqueConstraint(columnNames = "sku"))
+@Table(name = "product_variants",
+        uniqueConstraints = @UniqueConstraint(columnNames = "sku"),
+        indexes = @Index(name = "idx_product_variants_product_id", columnList = "product_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProductVariant {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_variants_seq")
+    @SequenceGenerator(name = "product_variants_seq", sequenceName = "product_variants_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -5,8 +5,10 @@ import com.clothingstore.entity.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -25,4 +27,15 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     @Query("SELECT COALESCE(SUM(o.totalPrice), 0) FROM Order o WHERE o.createdAt BETWEEN :start AND :end")
     double sumTotalPriceByCreatedAtBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /** PENDING to PAID only; returns 0 if the order is unknown, already paid or was cancelled on expiry. */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Order o SET o.status = com.clothingstore.entity.OrderStatus.PAID " +
+           "WHERE o.id = :id AND o.status = com.clothingstore.entity.OrderStatus.PENDING")
+    int markPaidIfPending(@Param("id") Long id);
+
+    /** Uploaded images referenced from order history (order lines keep the image they were bought with). */
+    @Query("SELECT DISTINCT i.imageUrl FROM OrderItem i WHERE i.imageUrl LIKE '%/uploads/%'")
+    List<String> findDistinctUploadImageUrls();
 }
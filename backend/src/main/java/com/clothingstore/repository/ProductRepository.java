@@ -1,16 +1,32 @@
 package com.clothingstore.repository;
 
+import com.clothingstore.dto.ProductListItemDTO;
 import com.clothingstore.entity.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
+    /**
+     * Projection used by listing queries: selecting the DTO instead of the entity means the
+     * EAGER variants collection is never initialized row by row. Variants are attached afterwards
+     * with a single {@link ProductVariantRepository#findListingVariants} query.
+     */
+    String LISTING_SELECT = """
+        SELECT new com.clothingstore.dto.ProductListItemDTO(
+            p.id, p.name, p.description, p.price, p.imageUrl, p.additionalImageUrls,
+            p.category, p.color, p.sizes, p.visible, p.thumbnailUrl, p.cardImageUrl, p.detailImageUrl)
+        FROM Product p
+        """;
+
     List<Product> findAllByOrderByNameAsc();
 
     List<Product> findByCategoryIgnoreCaseOrderByNameAsc(String category);
@@ -19,13 +35,124 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     List<Product> findByVisibleTrueAndCategoryIgnoreCaseOrderByNameAsc(String category);
 
-    Page<Product> findAllByOrderByNameAsc(Pageable pageable);
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.variants WHERE p.visible = true")
+    List<Product> findAllVisibleWithVariants();
+
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.variants WHERE p.id IN :ids")
+    List<Product> findAllWithVariantsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(value = LISTING_SELECT + " ORDER BY p.name ASC, p.id ASC",
+           countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<ProductListItemDTO> findListingPage(Pageable pageable);
+
+    @Query(value = LISTING_SELECT + " WHERE LOWER(p.category) = LOWER(:category) ORDER BY p.name ASC, p.id ASC",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE LOWER(p.category) = LOWER(:category)")
+    Page<ProductListItemDTO> findListingPageByCategory(@Param("category") String category, Pageable pageable);
+
+    @Query(LISTING_SELECT + " WHERE p.id IN :ids")
+    List<ProductListItemDTO> findListingByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Ranked full-text search backed by the GIN index on {@code search_vector} (see schema.sql).
+     * Returns ids only; rows are loaded with {@link #findListingByIdIn}.
+     * {@code tsquery} must come from {@link com.clothingstore.util.InputSanitizer#toPrefixTsQuery}.
+     */
+    @Query(value = """
+        SELECT p.id FROM products p, to_tsquery('english', :tsquery) query
+        WHERE p.search_vector @@ query
+          AND (CAST(:category AS text) IS NULL OR LOWER(p.category) = LOWER(CAST(:category AS text)))
+        ORDER BY ts_rank(p.search_vector, query) DESC, p.name ASC, p.id ASC
+        """,
+        countQuery = """
+        SELECT COUNT(*) FROM products p
+        WHERE p.search_vector @@ to_tsquery('english', :tsquery)
+          AND (CAST(:category AS text) IS NULL OR LOWER(p.category) = LOWER(CAST(:category AS text)))
+        """,
+        nativeQuery = true)
+    Page<Long> searchFullTextIds(@Param("tsquery") String tsquery, @Param("category") String category, Pageable pageable);
+
+    @Query(value = """
+        SELECT p.* FROM products p, to_tsquery('english', :tsquery) query
+        WHERE p.visible = true
+          AND p.search_vector @@ query
+          AND (CAST(:category AS text) IS NULL OR LOWER(p.category) = LOWER(CAST(:category AS text)))
+        ORDER BY ts_rank(p.search_vector, query) DESC, p.name ASC, p.id ASC
+        """, nativeQuery = true)
+    List<Product> searchVisibleFullText(@Param("tsquery") String tsquery, @Param("category") String category, Pageable pageable);
+
+    @Query(LISTING_SELECT + """
+        WHERE (:category IS NULL OR LOWER(p.category) = LOWER(:category))
+        ORDER BY p.name ASC, p.id ASC
+        """)
+    List<ProductListItemDTO> findKeysetFirstPage(@Param("category") String category, Limit limit);
+
+    @Query(LISTING_SELECT + """
+        WHERE (:category IS NULL OR LOWER(p.category) = LOWER(:category))
+          AND (p.name > :afterName OR (p.name = :afterName AND p.id > :afterId))
+        ORDER BY p.name ASC, p.id ASC
+        """)
+    List<ProductListItemDTO> findKeysetPageAfter(@Param("category") String category,
+                                                 @Param("afterName") String afterName, @Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT COUNT(p) FROM Product p WHERE (:category IS NULL OR LOWER(p.category) = LOWER(:category))")
+    long countForAdminListing(@Param("category") String category);
+
+    /**
+     * Keyset page of full-text matches in (name, id) order, so cursor and offset mode return the same
+     * rows for a search. A null {@code afterName} starts at the first page. Ids only, like
+     * {@link #searchFullTextIds}.
+     */
+    @Query(value = """
+        SELECT p.id FROM products p
+        WHERE p.search_vector @@ to_tsquery('english', :tsquery)
+          AND (CAST(:category AS text) IS NULL OR LOWER(p.category) = LOWER(CAST(:category AS text)))
+          AND (CAST(:afterName AS text) IS NULL OR p.name > CAST(:afterName AS text)
+               OR (p.name = CAST(:afterName AS text) AND p.id > :afterId))
+        ORDER BY p.name ASC, p.id ASC
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<Long> searchFullTextKeysetIds(@Param("tsquery") String tsquery, @Param("category") String category,
+                                       @Param("afterName") String afterName, @Param("afterId") long afterId,
+                                       @Param("limit") int limit);
+
+    @Query(value = """
+        SELECT COUNT(*) FROM products p
+        WHERE p.search_vector @@ to_tsquery('english', :tsquery)
+          AND (CAST(:category AS text) IS NULL OR LOWER(p.category) = LOWER(CAST(:category AS text)))
+        """, nativeQuery = true)
+    long countFullText(@Param("tsquery") String tsquery, @Param("category") String category);
+
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.visible = :visible WHERE p.id IN :ids")
+    int updateVisibility(@Param("ids") Collection<Long> ids, @Param("visible") boolean visible);
+
+    /**
+     * {@code multiplier} is 1 - discount/100 and therefore never negative.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.price = p.price * :multiplier WHERE p.id IN :ids")
+    int applyPriceMultiplier(@Param("ids") Collection<Long> ids, @Param("multiplier") double multiplier);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Product p WHERE p.id IN :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<Long> ids);
 
-    Page<Product> findByCategoryIgnoreCaseOrderByNameAsc(String category, Pageable pageable);
+    @Query("SELECT p.id FROM Product p WHERE p.imageUrl = :imageUrl")
+    List<Long> findIdsByImageUrl(@Param("imageUrl") String imageUrl);
 
-    @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) ORDER BY p.name ASC")
-    Page<Product> findByNameContainingIgnoreCaseOrderByNameAsc(@Param("search") String search, Pageable pageable);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Product p SET p.thumbnailUrl = :thumbnailUrl, p.cardImageUrl = :cardImageUrl, p.detailImageUrl = :detailImageUrl
+        WHERE p.imageUrl = :imageUrl
+        """)
+    int updateImageDerivatives(@Param("imageUrl") String imageUrl,
+                               @Param("thumbnailUrl") String thumbnailUrl,
+                               @Param("cardImageUrl") String cardImageUrl,
+                               @Param("detailImageUrl") String detailImageUrl);
 
-    @Query("SELECT p FROM Product p WHERE LOWER(p.category) = LOWER(:category) AND LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) ORDER BY p.name ASC")
-    Page<Product> findByCategoryIgnoreCaseAndNameContainingIgnoreCaseOrderByNameAsc(@Param("category") String category, @Param("search") String search, Pageable pageable);
+    @Query("SELECT p.imageUrl, p.additionalImageUrls, p.thumbnailUrl, p.cardImageUrl, p.detailImageUrl FROM Product p")
+    List<Object[]> findAllImageReferences();
 }
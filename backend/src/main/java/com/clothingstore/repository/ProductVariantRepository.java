@@ -1,9 +1,14 @@
 package com.clothingstore.repository;
 
+import com.clothingstore.dto.VariantDTO;
 import com.clothingstore.entity.Product;
 import com.clothingstore.entity.ProductVariant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,5 +18,39 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
 
     Optional<ProductVariant> findBySku(String sku);
 
+    /**
+     * Variants for a set of SKUs with their product and its (EAGER) variants fetched in the same
+     * query, so resolving a multi-line order is one round trip.
+     */
+    @Query("SELECT DISTINCT v FROM ProductVariant v JOIN FETCH v.product p LEFT JOIN FETCH p.variants WHERE v.sku IN :skus")
+    List<ProductVariant> findBySkuIn(@Param("skus") Collection<String> skus);
+
     Optional<ProductVariant> findByProductAndSize(Product product, String size);
+
+    @Query("SELECT new com.clothingstore.dto.VariantDTO(v.id, v.product.id, v.size, v.stock, v.sku) FROM ProductVariant v WHERE v.product.id IN :productIds ORDER BY v.id")
+    List<VariantDTO> findListingVariants(@Param("productIds") Collection<Long> productIds);
+
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM ProductVariant v WHERE v.product.id IN :productIds")
+    int deleteByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    /** Returns 1 if the stock was decremented, 0 if the SKU is unknown or has less than {@code qty}. */
+    @Modifying
+    @Query("UPDATE ProductVariant v SET v.stock = v.stock - :qty WHERE v.sku = :sku AND v.stock >= :qty")
+    int decrementStock(@Param("sku") String sku, @Param("qty") int qty);
+
+    @Modifying
+    @Query("UPDATE ProductVariant v SET v.stock = v.stock + :delta WHERE v.id = :id")
+    int adjustStock(@Param("id") Long id, @Param("delta") int delta);
+
+    /**
+     * Locks the rows of these SKUs in byte order of the SKU, the order {@code InventoryService}
+     * decrements in, so a transaction taking them all up front cannot deadlock with single checkouts.
+     */
+    @Query(value = "SELECT id FROM product_variants WHERE sku IN (:skus) ORDER BY sku COLLATE \"C\" FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockBySkuIn(@Param("skus") Collection<String> skus);
+
+    @Query("SELECT v.stock FROM ProductVariant v WHERE v.sku = :sku")
+    Optional<Integer> findStockBySku(@Param("sku") String sku);
 }
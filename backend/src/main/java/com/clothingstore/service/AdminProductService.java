@@ -1,20 +1,41 @@
 package com.clothingstore.service;
 
+import com.clothingstore.catalog.CatalogChangedEvent;
+import com.clothingstore.dto.BulkOperationResult;
 import com.clothingstore.dto.CreateProductRequest;
+import com.clothingstore.dto.CursorPage;
+import com.clothingstore.dto.ProductListItemDTO;
 import com.clothingstore.dto.UpdateProductRequest;
+import com.clothingstore.dto.VariantDTO;
 import com.clothingstore.dto.VariantRequest;
 import com.clothingstore.entity.Product;
 import com.clothingstore.entity.ProductVariant;
 import com.clothingstore.repository.ProductRepository;
 import com.clothingstore.repository.ProductVariantRepository;
+import com.clothingstore.util.CursorCodec;
 import com.clothingstore.util.InputSanitizer;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -22,26 +43,104 @@ public class AdminProductService {
 
     private static final int SEARCH_MAX_LENGTH = 100;
     private static final int CATEGORY_MAX_LENGTH = 100;
+    /** Ids per IN (...) statement in bulk operations; keeps well under the JDBC bind parameter limit. */
+    private static final int BULK_CHUNK_SIZE = 1000;
 
     private final ProductRepository productRepository;
     private final ProductVariantRepository productVariantRepository;
+    private final HotSkuLedger hotSkuLedger;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final ImageDerivativeService imageDerivativeService;
 
-    public Page<Product> getAllProducts(String category, String search, Pageable pageable) {
-        String sanitizedSearch = InputSanitizer.sanitizeSearch(search, SEARCH_MAX_LENGTH);
+    /**
+     * Admin list page. Runs a constant number of queries regardless of page size:
+     * the page (plus count) and one query for all variants on the page.
+     */
+    @Transactional(readOnly = true)
+    public Page<ProductListItemDTO> getAllProducts(String category, String search, Pageable pageable) {
+        String tsQuery = InputSanitizer.toPrefixTsQuery(search, SEARCH_MAX_LENGTH);
         String sanitizedCategory = InputSanitizer.sanitizeSearch(category, CATEGORY_MAX_LENGTH);
-        boolean hasSearch = sanitizedSearch != null && !sanitizedSearch.isBlank();
         boolean hasCategory = sanitizedCategory != null && !sanitizedCategory.isBlank();
 
-        if (hasCategory && hasSearch) {
-            return productRepository.findByCategoryIgnoreCaseAndNameContainingIgnoreCaseOrderByNameAsc(sanitizedCategory, sanitizedSearch, pageable);
+        Page<ProductListItemDTO> page;
+        if (tsQuery != null) {
+            Page<Long> ids = productRepository.searchFullTextIds(tsQuery, hasCategory ? sanitizedCategory : null, pageable);
+            page = new PageImpl<>(loadListingInOrder(ids.getContent()), pageable, ids.getTotalElements());
+        } else if (hasCategory) {
+            page = productRepository.findListingPageByCategory(sanitizedCategory, pageable);
+        } else {
+            page = productRepository.findListingPage(pageable);
         }
-        if (hasCategory) {
-            return productRepository.findByCategoryIgnoreCaseOrderByNameAsc(sanitizedCategory, pageable);
+        attachVariants(page.getContent());
+        return page;
+    }
+
+    /**
+     * Keyset (cursor) pagination over (name, id). Cost does not grow with page depth;
+     * pass {@code withCount = false} to also skip the count query. A search term uses the same
+     * full-text match as offset mode, in (name, id) order instead of by rank.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<ProductListItemDTO> getProductsAfterCursor(String category, String search, String cursor, int size, boolean withCount) {
+        String tsQuery = InputSanitizer.toPrefixTsQuery(search, SEARCH_MAX_LENGTH);
+        String sanitizedCategory = InputSanitizer.sanitizeSearch(category, CATEGORY_MAX_LENGTH);
+
+        String afterName = null;
+        long afterId = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = CursorCodec.decode(cursor, 2);
+            try {
+                afterId = Long.parseLong(position[1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            afterName = position[0];
+        }
+
+        List<ProductListItemDTO> rows;
+        if (tsQuery != null) {
+            rows = loadListingInOrder(productRepository.searchFullTextKeysetIds(
+                    tsQuery, sanitizedCategory, afterName, afterId, size + 1));
+        } else if (afterName == null) {
+            rows = productRepository.findKeysetFirstPage(sanitizedCategory, Limit.of(size + 1));
+        } else {
+            rows = productRepository.findKeysetPageAfter(sanitizedCategory, afterName, afterId, Limit.of(size + 1));
+        }
+
+        boolean hasNext = rows.size() > size;
+        List<ProductListItemDTO> content = hasNext ? rows.subList(0, size) : rows;
+        attachVariants(content);
+        String nextCursor = null;
+        if (hasNext) {
+            ProductListItemDTO last = content.get(content.size() - 1);
+            nextCursor = CursorCodec.encode(last.getName(), String.valueOf(last.getId()));
         }
-        if (hasSearch) {
-            return productRepository.findByNameContainingIgnoreCaseOrderByNameAsc(sanitizedSearch, pageable);
+        Long total = null;
+        if (withCount) {
+            total = tsQuery != null
+                    ? productRepository.countFullText(tsQuery, sanitizedCategory)
+                    : productRepository.countForAdminListing(sanitizedCategory);
+        }
+        return new CursorPage<>(List.copyOf(content), nextCursor, hasNext, total);
+    }
+
+    private List<ProductListItemDTO> loadListingInOrder(List<Long> ids) {
+        if (ids.isEmpty()) return List.of();
+        Map<Long, Integer> position = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) position.put(ids.get(i), i);
+        List<ProductListItemDTO> rows = new ArrayList<>(productRepository.findListingByIdIn(ids));
+        rows.sort(Comparator.comparing(r -> position.get(r.getId())));
+        return rows;
+    }
+
+    private void attachVariants(List<ProductListItemDTO> items) {
+        if (items.isEmpty()) return;
+        Map<Long, ProductListItemDTO> byId = items.stream()
+                .collect(Collectors.toMap(ProductListItemDTO::getId, Function.identity()));
+        for (VariantDTO v : productVariantRepository.findListingVariants(byId.keySet())) {
+            byId.get(v.getProductId()).getVariants().add(v);
         }
-        return productRepository.findAllByOrderByNameAsc(pageable);
     }
 
     public Product getById(Long id) {
@@ -51,6 +150,31 @@ public class AdminProductService {
 
     @Transactional
     public Product create(CreateProductRequest request) {
+        Product product = productRepository.save(toNewProduct(request));
+
+        if (request.getVariants() != null && !request.getVariants().isEmpty()) {
+            for (VariantRequest vr : request.getVariants()) {
+                if (vr.getSize() == null || vr.getSize().isBlank()) continue;
+                String size = vr.getSize().trim();
+                String sku = product.getId() + "-" + size;
+                ProductVariant variant = new ProductVariant();
+                variant.setProduct(product);
+                variant.setSize(size);
+                variant.setStock(Math.max(0, vr.getStock()));
+                variant.setSku(sku);
+                productVariantRepository.save(variant);
+            }
+        }
+
+        eventPublisher.publishEvent(CatalogChangedEvent.of(product.getId()));
+        return product;
+    }
+
+    /**
+     * Applies the sanitization rules for a new product (shared by {@link #create} and the bulk import).
+     * Variants are not copied.
+     */
+    Product toNewProduct(CreateProductRequest request) {
         Product product = new Product();
         String name = InputSanitizer.sanitizeText(request.getName(), 255);
         if (name == null || name.isBlank()) {
@@ -68,22 +192,7 @@ public class AdminProductService {
         product.setCategory(category);
         product.setColor(InputSanitizer.sanitizeText(request.getColor(), 50));
         product.setVisible(request.getVisible() != null ? request.getVisible() : true);
-        product = productRepository.save(product);
-
-        if (request.getVariants() != null && !request.getVariants().isEmpty()) {
-            for (VariantRequest vr : request.getVariants()) {
-                if (vr.getSize() == null || vr.getSize().isBlank()) continue;
-                String size = vr.getSize().trim();
-                String sku = product.getId() + "-" + size;
-                ProductVariant variant = new ProductVariant();
-                variant.setProduct(product);
-                variant.setSize(size);
-                variant.setStock(Math.max(0, vr.getStock()));
-                variant.setSku(sku);
-                productVariantRepository.save(variant);
-            }
-        }
-
+        imageDerivativeService.applyDerivatives(product);
         return product;
     }
 
@@ -115,6 +224,7 @@ public class AdminProductService {
         }
         if (request.getImageUrl() != null) {
             product.setImageUrl(InputSanitizer.sanitizeUrl(request.getImageUrl(), 500));
+            imageDerivativeService.applyDerivatives(product);
         }
         if (request.getAdditionalImageUrls() != null) {
             product.setAdditionalImageUrls(sanitizeAdditionalImageUrls(request.getAdditionalImageUrls()));
@@ -131,68 +241,106 @@ public class AdminProductService {
         Product savedProduct = productRepository.save(product);
 
         if (request.getVariants() != null) {
-            for (VariantRequest vr : request.getVariants()) {
-                if (vr.getSize() == null || vr.getSize().isBlank()) continue;
-                String size = vr.getSize().trim();
-                productVariantRepository.findByProductAndSize(savedProduct, size)
-                        .ifPresentOrElse(
-                                existing -> {
-                                    existing.setStock(Math.max(0, vr.getStock()));
-                                    productVariantRepository.save(existing);
-                                },
-                                () -> {
-                                    String sku = savedProduct.getId() + "-" + size;
-                                    ProductVariant variant = new ProductVariant();
-                                    variant.setProduct(savedProduct);
-                                    variant.setSize(size);
-                                    variant.setStock(Math.max(0, vr.getStock()));
-                                    variant.setSku(sku);
-                                    productVariantRepository.save(variant);
-                                }
-                        );
-            }
+            upsertVariants(savedProduct, request.getVariants());
         }
 
+        eventPublisher.publishEvent(CatalogChangedEvent.of(savedProduct.getId()));
         return savedProduct;
     }
 
+    /**
+     * Diffs the requested sizes against the variants already loaded with the product. Stock changes go
+     * through dirty checking and new sizes are cascaded from the product, so both go out as JDBC batches at
+     * flush with ids from the pooled-lo sequence. Unchanged variants are not written.
+     */
+    private void upsertVariants(Product product, List<VariantRequest> requested) {
+        Map<String, ProductVariant> existingBySize = new HashMap<>();
+        for (ProductVariant v : product.getVariants()) {
+            existingBySize.put(v.getSize(), v);
+        }
+
+        for (VariantRequest vr : requested) {
+            if (vr.getSize() == null || vr.getSize().isBlank()) continue;
+            String size = vr.getSize().trim();
+            int stock = Math.max(0, vr.getStock());
+            ProductVariant existing = existingBySize.get(size);
+            if (existing == null) {
+                ProductVariant variant = new ProductVariant();
+                variant.setProduct(product);
+                variant.setSize(size);
+                variant.setStock(stock);
+                variant.setSku(product.getId() + "-" + size);
+                product.getVariants().add(variant);
+                existingBySize.put(size, variant);
+            } else if (existing.getStock() == null || existing.getStock() != stock) {
+                if (hotSkuLedger.isHot(existing.getSku())) {
+                    // unflushed hot SKU sales are still to be subtracted, so write the change relative
+                    int delta = stock - (existing.getStock() != null ? existing.getStock() : 0);
+                    productVariantRepository.adjustStock(existing.getId(), delta);
+                    entityManager.refresh(existing);
+                    hotSkuLedger.adjustAfterCommit(existing.getSku(), delta);
+                } else {
+                    existing.setStock(stock);
+                }
+            }
+        }
+    }
+
     @Transactional
     public void delete(Long id) {
         if (!productRepository.existsById(id)) {
             throw new RuntimeException("Product not found: " + id);
         }
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(CatalogChangedEvent.of(id));
     }
 
     @Transactional
-    public void bulkDelete(List<Long> productIds) {
-        for (Long id : productIds) {
-            if (!productRepository.existsById(id)) {
-                throw new RuntimeException("Product not found: " + id);
-            }
-            productRepository.deleteById(id);
-        }
+    public BulkOperationResult bulkDelete(List<Long> productIds) {
+        return applyInChunks(productIds, chunk -> {
+            productVariantRepository.deleteByProductIdIn(chunk);
+            productRepository.deleteAllByIdIn(chunk);
+        });
     }
 
     @Transactional
-    public void bulkVisibility(List<Long> productIds, boolean visible) {
-        for (Long id : productIds) {
-            Product p = productRepository.findById(id)
-                    .orElseThrow(() -> new RuntimeException("Product not found: " + id));
-            p.setVisible(visible);
-            productRepository.save(p);
-        }
+    public BulkOperationResult bulkVisibility(List<Long> productIds, boolean visible) {
+        return applyInChunks(productIds, chunk -> productRepository.updateVisibility(chunk, visible));
     }
 
     @Transactional
-    public void bulkDiscount(List<Long> productIds, double discountPercentage) {
-        double multiplier = 1.0 - (discountPercentage / 100.0);
-        for (Long id : productIds) {
-            Product p = productRepository.findById(id)
-                    .orElseThrow(() -> new RuntimeException("Product not found: " + id));
-            double newPrice = p.getPrice() * multiplier;
-            p.setPrice(Math.max(0, newPrice));
-            productRepository.save(p);
+    public BulkOperationResult bulkDiscount(List<Long> productIds, double discountPercentage) {
+        double multiplier = Math.max(0, 1.0 - (discountPercentage / 100.0));
+        return applyInChunks(productIds, chunk -> productRepository.applyPriceMultiplier(chunk, multiplier));
+    }
+
+    /**
+     * Runs a set-based statement per chunk of existing ids (one lookup plus one or two statements per
+     * chunk, instead of round trips per id) and reports which requested ids were missing.
+     */
+    private BulkOperationResult applyInChunks(List<Long> productIds, Consumer<List<Long>> statement) {
+        List<Long> requested = new ArrayList<>(new LinkedHashSet<>(productIds));
+        requested.removeIf(Objects::isNull);
+        List<Long> applied = new ArrayList<>();
+        List<Long> missing = new ArrayList<>();
+
+        for (int from = 0; from < requested.size(); from += BULK_CHUNK_SIZE) {
+            List<Long> chunk = requested.subList(from, Math.min(from + BULK_CHUNK_SIZE, requested.size()));
+            Set<Long> existing = new HashSet<>(productRepository.findExistingIds(chunk));
+            List<Long> present = new ArrayList<>(existing.size());
+            for (Long id : chunk) {
+                if (existing.contains(id)) present.add(id);
+                else missing.add(id);
+            }
+            if (!present.isEmpty()) {
+                statement.accept(present);
+                applied.addAll(present);
+            }
+        }
+
+        if (!applied.isEmpty()) {
+            eventPublisher.publishEvent(CatalogChangedEvent.of(applied));
         }
+        return new BulkOperationResult(applied, missing);
     }
 }
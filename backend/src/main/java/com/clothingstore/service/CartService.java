@@ -15,8 +15,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,6 +31,7 @@ public class CartService {
     private final CustomerRepository customerRepository;
     private final ProductRepository productRepository;
 
+    @Transactional
     public List<Map<String, Object>> getCart(String email) {
         Cart cart = getOrCreateCart(email);
         Map<String, Map<String, Object>> bySku = new java.util.LinkedHashMap<>();
@@ -64,8 +68,18 @@ public class CartService {
             }
         }
 
+        Set<Long> productIds = new HashSet<>();
+        for (CartItemRequest req : consolidated.values()) {
+            if (req.getProductId() != null) productIds.add(req.getProductId());
+        }
+        // one query for the whole cart instead of a findById per entry
+        Map<Long, Product> productsById = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            productRepository.findAllWithVariantsByIdIn(productIds).forEach(p -> productsById.put(p.getId(), p));
+        }
+
         for (CartItemRequest req : consolidated.values()) {
-            Product product = productRepository.findById(req.getProductId()).orElse(null);
+            Product product = productsById.get(req.getProductId());
             if (product == null) continue;
 
             CartItem item = new CartItem();
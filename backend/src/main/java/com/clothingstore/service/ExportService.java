@@ -0,0 +1,228 @@
+package com.clothingstore.service;
+
+import com.clothingstore.util.CsvWriter;
+import com.clothingstore.util.InputSanitizer;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Catalog and order exports for the warehouse. Rows are read through a server-side cursor
+ * (read-only transaction plus a JDBC fetch size) and written to the response as they arrive,
+ * so heap use does not depend on table size and there is no OFFSET or count query.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int CATEGORY_MAX_LENGTH = 100;
+
+    /** Same columns as the product import, so an export can be re-imported. */
+    private static final String PRODUCTS_SQL = """
+            SELECT p.id AS "id", p.name AS "name", p.description AS "description", p.price AS "price",
+                   p.image_url AS "imageUrl", p.additional_image_urls AS "additionalImageUrls",
+                   p.category AS "category", p.color AS "color", p.visible AS "visible",
+                   (SELECT string_agg(v.size || ':' || v.stock, '|' ORDER BY v.id)
+                      FROM product_variants v WHERE v.product_id = p.id) AS "variants"
+            FROM products p
+            """;
+
+    /** One row per order line; orders without items produce a single row with empty item columns. */
+    private static final String ORDERS_SQL = """
+            SELECT o.id AS "orderId", o.created_at AS "createdAt", o.status AS "status",
+                   o.guest_email AS "email", o.total_price AS "orderTotal",
+                   i.product_id AS "productId", i.sku AS "sku", i.product_name AS "productName",
+                   i.size AS "size", i.color AS "color", i.quantity AS "quantity", i.unit_price AS "unitPrice"
+            FROM orders o
+            LEFT JOIN order_items i ON i.order_id = o.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    public void exportProducts(String category, Format format, OutputStream out) throws IOException {
+        String sanitizedCategory = InputSanitizer.sanitizeSearch(category, CATEGORY_MAX_LENGTH);
+        StringBuilder sql = new StringBuilder(PRODUCTS_SQL);
+        List<Object> args = new ArrayList<>();
+        if (sanitizedCategory != null) {
+            sql.append("WHERE LOWER(p.category) = LOWER(?)\n");
+            args.add(sanitizedCategory);
+        }
+        sql.append("ORDER BY p.id");
+        stream(sql.toString(), args, format, out);
+    }
+
+    /**
+     * @param from     first day included (null for no lower bound)
+     * @param to       last day included (null for no upper bound)
+     * @param category only lines whose product is currently in this category (null for all lines)
+     */
+    public void exportOrders(LocalDate from, LocalDate to, String category, Format format, OutputStream out) throws IOException {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        String sanitizedCategory = InputSanitizer.sanitizeSearch(category, CATEGORY_MAX_LENGTH);
+        StringBuilder sql = new StringBuilder(ORDERS_SQL);
+        List<Object> args = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        if (sanitizedCategory != null) {
+            // lines of deleted products have no category and are left out
+            sql.append("JOIN products p ON p.id = i.product_id\n");
+            conditions.add("LOWER(p.category) = LOWER(?)");
+            args.add(sanitizedCategory);
+        }
+        if (from != null) {
+            conditions.add("o.created_at >= ?");
+            args.add(Timestamp.valueOf(from.atStartOfDay()));
+        }
+        if (to != null) {
+            conditions.add("o.created_at < ?");
+            args.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        }
+        if (!conditions.isEmpty()) {
+            sql.append("WHERE ").append(String.join(" AND ", conditions)).append('\n');
+        }
+        // Served in order by idx_orders_created_at; lines of one order stay adjacent
+        sql.append("ORDER BY o.created_at, o.id");
+        stream(sql.toString(), args, format, out);
+    }
+
+    private void stream(String sql, List<Object> args, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        RowSink sink = format == Format.CSV ? new CsvSink(writer) : new NdjsonSink(writer);
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        try {
+            tx.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                // Postgres only uses a cursor with autocommit off (the transaction) and a fetch size
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(FETCH_SIZE);
+                for (int i = 0; i < args.size(); i++) {
+                    ps.setObject(i + 1, args.get(i));
+                }
+                return ps;
+            }, streamTo(sink)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        sink.finish();
+        writer.flush();
+    }
+
+    /** Writes the header, then each row as it is fetched; nothing is collected. */
+    private static ResultSetExtractor<Void> streamTo(RowSink sink) {
+        return rs -> {
+            try {
+                ResultSetMetaData meta = rs.getMetaData();
+                String[] columns = new String[meta.getColumnCount()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = meta.getColumnLabel(i + 1);
+                }
+                sink.header(columns);
+                Object[] values = new Object[columns.length];
+                while (rs.next()) {
+                    for (int i = 0; i < columns.length; i++) {
+                        Object value = rs.getObject(i + 1);
+                        values[i] = value instanceof Timestamp ts ? ts.toLocalDateTime().toString() : value;
+                    }
+                    sink.row(columns, values);
+                }
+                return null;
+            } catch (IOException e) {
+                // client went away; abort the query instead of reading the rest of the table
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private interface RowSink {
+        void header(String[] columns) throws IOException;
+
+        void row(String[] columns, Object[] values) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class CsvSink implements RowSink {
+
+        private final CsvWriter csv;
+
+        CsvSink(Writer writer) {
+            this.csv = new CsvWriter(writer);
+        }
+
+        @Override
+        public void header(String[] columns) throws IOException {
+            csv.writeRow(Arrays.asList(columns));
+        }
+
+        @Override
+        public void row(String[] columns, Object[] values) throws IOException {
+            csv.writeRow(Arrays.asList(values));
+        }
+
+        @Override
+        public void finish() {
+        }
+    }
+
+    private final class NdjsonSink implements RowSink {
+
+        private final Writer writer;
+        private final JsonGenerator json;
+
+        NdjsonSink(Writer writer) throws IOException {
+            this.writer = writer;
+            this.json = objectMapper.getFactory().createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        }
+
+        @Override
+        public void header(String[] columns) {
+        }
+
+        @Override
+        public void row(String[] columns, Object[] values) throws IOException {
+            json.writeStartObject();
+            for (int i = 0; i < columns.length; i++) {
+                json.writeFieldName(columns[i]);
+                json.writeObject(values[i]);
+            }
+            json.writeEndObject();
+            json.flush();
+            writer.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            json.close();
+        }
+    }
+}
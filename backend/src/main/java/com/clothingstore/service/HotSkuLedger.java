@@ -0,0 +1,261 @@
+package com.clothingstore.service;
+
+import com.clothingstore.catalog.CatalogChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Optional in-memory stock for flash-sale SKUs ({@code app.inventory.hot-skus}). Checkouts for these
+ * SKUs take units from striped atomic counters instead of locking the {@code product_variants} row,
+ * and their order lines are saved with {@code stock_committed = false}. A write-behind flush folds
+ * those lines into {@code product_variants.stock} in one statement and marks them committed, so the
+ * database is the source of truth: after a crash, startup applies any uncommitted lines and then
+ * loads the counters from the resulting stock.
+ * <p>
+ * Only SKUs that exist at startup become hot; others keep the conditional-UPDATE path in
+ * {@link InventoryService}. Single instance only: every JVM loads the full stock into its own
+ * counters, so N instances with the same hot SKUs could sell up to N times the stock.
+ */
+@Slf4j
+@Service
+public class HotSkuLedger implements SmartInitializingSingleton {
+
+    /**
+     * Marks up to {@code ?} uncommitted lines as committed and subtracts their quantities from
+     * stock, atomically. SKIP LOCKED lets a slow flush overlap with the next without blocking.
+     * Returns the number of lines settled (lines of SKUs that no longer exist are settled without
+     * a stock row to update) and the products whose stock changed.
+     */
+    static final String FLUSH_SQL = """
+        WITH pending AS (
+            UPDATE order_items SET stock_committed = true
+            WHERE id IN (SELECT id FROM order_items WHERE stock_committed = false
+                         ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED)
+            RETURNING sku, quantity
+        ), totals AS (
+            SELECT sku, SUM(quantity) AS qty FROM pending GROUP BY sku
+        ), updated AS (
+            UPDATE product_variants v SET stock = v.stock - t.qty
+            FROM totals t WHERE v.sku = t.sku
+            RETURNING v.product_id
+        )
+        SELECT (SELECT COUNT(*) FROM pending) AS settled,
+               ARRAY(SELECT DISTINCT product_id FROM updated) AS product_ids
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Set<String> configuredSkus;
+    private final int stripes;
+    private final int flushBatchSize;
+    private final Map<String, StripedStock> counters = new ConcurrentHashMap<>();
+
+    public HotSkuLedger(JdbcTemplate jdbcTemplate,
+                        ApplicationEventPublisher eventPublisher,
+                        @Value("${app.inventory.hot-skus:}") Set<String> configuredSkus,
+                        @Value("${app.inventory.ledger-stripes:0}") int stripes,
+                        @Value("${app.inventory.flush-batch-size:5000}") int flushBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.configuredSkus = new HashSet<>();
+        configuredSkus.stream().map(String::trim).filter(s -> !s.isEmpty()).forEach(this.configuredSkus::add);
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    /** Crash recovery: applies lines left uncommitted by a previous run, then loads the counters. */
+    @Override
+    public void afterSingletonsInstantiated() {
+        while (flushOnce() > 0) {
+            // drain everything a previous process reserved but did not persist
+        }
+        if (configuredSkus.isEmpty()) return;
+        Map<String, Integer> stock = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT sku, stock FROM product_variants WHERE sku = ANY (?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", configuredSkus.toArray())),
+                rs -> {
+                    stock.put(rs.getString(1), rs.getInt(2));
+                });
+        load(stock);
+        log.info("Hot SKU ledger holding {} of {} configured SKUs in memory", counters.size(), configuredSkus.size());
+    }
+
+    /** Puts the given SKUs' stock into counters; only valid once every uncommitted line is applied. */
+    void load(Map<String, Integer> stock) {
+        stock.forEach((sku, units) -> counters.put(sku, new StripedStock(stripes, units)));
+    }
+
+    public boolean isHot(String sku) {
+        return counters.containsKey(sku);
+    }
+
+    /**
+     * Takes the quantities from the in-memory counters. Must run inside the order's transaction:
+     * if it (or the savepoint the order runs in) rolls back, the units are returned. On failure, units already taken for earlier SKUs are
+     * returned immediately.
+     *
+     * @throws InsufficientStockException for the first SKU without enough units
+     */
+    public void reserve(Map<String, Integer> quantitiesBySku) {
+        Map<String, Integer> taken = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> line : quantitiesBySku.entrySet()) {
+            StripedStock stock = counters.get(line.getKey());
+            if (!stock.tryTake(line.getValue())) {
+                taken.forEach(this::giveBack);
+                throw new InsufficientStockException(line.getKey(), (int) Math.max(0, stock.sum()));
+            }
+            taken.put(line.getKey(), line.getValue());
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            /** Savepoints created after this reservation; rolling back to one of them keeps the units. */
+            private final Set<Object> laterSavepoints = new HashSet<>();
+            private boolean returned;
+
+            @Override
+            public void savepoint(Object savepoint) {
+                laterSavepoints.add(savepoint);
+            }
+
+            @Override
+            public void savepointRollback(Object savepoint) {
+                // a savepoint we never saw was created before the reservation, so it undoes this order
+                if (!returned && !laterSavepoints.contains(savepoint)) {
+                    taken.forEach(HotSkuLedger.this::giveBack);
+                    returned = true;
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (returned) return;
+                if (status == STATUS_ROLLED_BACK) {
+                    taken.forEach(HotSkuLedger.this::giveBack);
+                } else if (status == STATUS_UNKNOWN) {
+                    // the lines may be committed; keeping the units out can only undersell
+                    log.warn("Order transaction outcome unknown; not returning hot SKU units {}", taken);
+                }
+            }
+        });
+    }
+
+    /** Returns units to a hot SKU, e.g. when an order holding them is cancelled. No-op for other SKUs. */
+    public void giveBack(String sku, int qty) {
+        StripedStock stock = counters.get(sku);
+        if (stock != null) stock.add(qty);
+    }
+
+    /**
+     * Applies a stock change (an admin edit, or units released by a cancelled order) to the counter
+     * once the surrounding transaction commits. The database side must be written as a relative
+     * update as well, since unflushed lines are still to be subtracted from it.
+     */
+    public void adjustAfterCommit(String sku, int delta) {
+        if (!isHot(sku) || delta == 0) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            giveBack(sku, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                giveBack(sku, delta);
+            }
+        });
+    }
+
+    /** Write-behind: persists reserved units in batches and refreshes the catalog for touched products. */
+    @Scheduled(fixedDelayString = "${app.inventory.flush-interval-ms:100}")
+    public void flush() {
+        if (counters.isEmpty()) return;
+        try {
+            flushOnce();
+        } catch (RuntimeException e) {
+            log.warn("Hot SKU flush failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    /** Returns the number of order lines settled, which is what tells the startup drain it is done. */
+    private int flushOnce() {
+        Set<Long> productIds = new HashSet<>();
+        Integer settled = jdbcTemplate.queryForObject(FLUSH_SQL, (rs, rowNum) -> {
+            Collections.addAll(productIds, (Long[]) rs.getArray("product_ids").getArray());
+            return rs.getInt("settled");
+        }, flushBatchSize);
+        if (!productIds.isEmpty()) {
+            eventPublisher.publishEvent(CatalogChangedEvent.of(productIds));
+        }
+        return settled != null ? settled : 0;
+    }
+
+    /**
+     * Stock split over cells, each on its own cache line. A thread starts at the cell picked from its
+     * id so concurrent buyers rarely contend on the same CAS; when that cell runs short it takes from
+     * the others. Cells may go negative after a downward admin adjustment; {@link #sum()} stays exact.
+     */
+    static final class StripedStock {
+
+        private static final int PAD = 8; // longs per 64-byte cache line
+
+        private final int stripes;
+        private final AtomicLongArray cells;
+
+        StripedStock(int stripes, long units) {
+            this.stripes = stripes;
+            this.cells = new AtomicLongArray(stripes * PAD);
+            for (int i = 0; i < stripes; i++) {
+                cells.set(i * PAD, units / stripes + (i < units % stripes ? 1 : 0));
+            }
+        }
+
+        boolean tryTake(int qty) {
+            int home = (int) (Thread.currentThread().getId() % stripes);
+            for (int i = 0; i < stripes; i++) {
+                if (takeFrom((home + i) % stripes, qty, qty) == qty) return true;
+            }
+            // no single cell has enough: gather from all, returning the units if the total falls short
+            long gathered = 0;
+            for (int i = 0; i < stripes && gathered < qty; i++) {
+                gathered += takeFrom((home + i) % stripes, 1, qty - gathered);
+            }
+            if (gathered == qty) return true;
+            if (gathered > 0) add(gathered);
+            return false;
+        }
+
+        /** Takes up to {@code max} units (at least {@code min}) from one cell; returns the amount taken or 0. */
+        private long takeFrom(int stripe, long min, long max) {
+            int index = stripe * PAD;
+            while (true) {
+                long current = cells.get(index);
+                if (current < min) return 0;
+                long take = Math.min(current, max);
+                if (cells.compareAndSet(index, current, current - take)) return take;
+            }
+        }
+
+        void add(long units) {
+            cells.addAndGet((int) (Thread.currentThread().getId() % stripes) * PAD, units);
+        }
+
+        long sum() {
+            long total = 0;
+            for (int i = 0; i < stripes; i++) total += cells.get(i * PAD);
+            return total;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.clothingstore.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per {@code Idempotency-Key} and replays its first response to
+ * retries. Completed responses are kept in a bounded LRU and in {@code idempotency_records}; a
+ * duplicate arriving while the first is still running waits for it (in-process through a shared
+ * future, across instances by polling the claimed row) instead of executing again. 5xx results
+ * and exceptions are not recorded, so the client may retry those.
+ * <p>
+ * A claim is a lease: its owner renews {@code claimed_at} every {@code heartbeat-ms} while the
+ * request runs. If the owning process dies, the claim stops being renewed and the first duplicate
+ * to see it older than {@code lease-seconds} takes it over and runs the request itself.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long POLL_INTERVAL_MS = 100;
+    /** Marker for "another instance holds the key and did not finish within the wait". */
+    private static final StoredResponse STILL_RUNNING = new StoredResponse("", HttpStatus.CONFLICT.value(), null);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration retention;
+    private final long waitMillis;
+    private final Duration lease;
+    private final int maxEntries;
+
+    private final Map<String, StoredResponse> completed = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    /** Claims this process owns and is running; their leases are renewed by {@link #renewLeases}. */
+    private final Set<Claim> owned = ConcurrentHashMap.newKeySet();
+
+    public IdempotencyService(JdbcTemplate jdbcTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${app.idempotency.retention-hours:24}") long retentionHours,
+                              @Value("${app.idempotency.wait-seconds:30}") long waitSeconds,
+                              @Value("${app.idempotency.lease-seconds:15}") long leaseSeconds,
+                              @Value("${app.idempotency.max-entries:10000}") int maxEntries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.retention = Duration.ofHours(retentionHours);
+        this.waitMillis = waitSeconds * 1000;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.maxEntries = maxEntries;
+    }
+
+    /** A key held by this process; {@code owner} tells it apart from a later takeover of the same key. */
+    private record Claim(String scope, String key, String owner) {
+    }
+
+    /** First response for a key: status and JSON body, plus a hash of the request that produced it. */
+    record StoredResponse(String fingerprint, int status, String body) {
+
+        ResponseEntity<?> replay() {
+            return ResponseEntity.status(status)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(REPLAYED_HEADER, "true")
+                    .body(body);
+        }
+    }
+
+    /**
+     * Executes {@code action} unless this key was already used in {@code scope}. Without a key the
+     * action simply runs. {@code request} identifies the payload: reusing a key with a different
+     * one is rejected with 422.
+     */
+    public ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(Map.of("message", HEADER + " is too long"));
+        }
+        String id = scope + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        StoredResponse cached;
+        synchronized (completed) {
+            cached = completed.get(id);
+        }
+        if (cached != null) {
+            return replayIfSameRequest(cached, fingerprint);
+        }
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> existing = inFlight.putIfAbsent(id, mine);
+        if (existing != null) {
+            return await(existing, fingerprint);
+        }
+        try {
+            Claim claim = new Claim(scope, key, UUID.randomUUID().toString());
+            StoredResponse other = claimOrAwait(claim, fingerprint);
+            if (other != null) {
+                mine.complete(other);
+                return other == STILL_RUNNING ? stillRunning() : replayIfSameRequest(other, fingerprint);
+            }
+            return run(claim, fingerprint, action, mine);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    /**
+     * Inserts the in-progress claim. Returns null if this call owns the key, otherwise the response
+     * of the request that does (waiting for it if it is still running on another instance). A claim
+     * whose lease has lapsed is taken over, so a crashed owner does not block the key until purge.
+     */
+    private StoredResponse claimOrAwait(Claim claim, String fingerprint) {
+        Timestamp now = Timestamp.from(Instant.now());
+        int claimed = jdbcTemplate.update("""
+                INSERT INTO idempotency_records (scope, idem_key, fingerprint, created_at, claimed_at, owner)
+                VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (scope, idem_key) DO NOTHING
+                """, claim.scope(), claim.key(), fingerprint, now, now, claim.owner());
+        if (claimed == 1) {
+            owned.add(claim);
+            return null;
+        }
+
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (true) {
+            List<StoredResponse> rows = jdbcTemplate.query(
+                    "SELECT fingerprint, response_status, response_body FROM idempotency_records WHERE scope = ? AND idem_key = ?",
+                    (rs, i) -> new StoredResponse(rs.getString(1), rs.getInt(2), rs.getString(3)), claim.scope(), claim.key());
+            if (rows.isEmpty()) {
+                // the owner failed and released the key: take it over
+                return claimOrAwait(claim, fingerprint);
+            }
+            StoredResponse row = rows.get(0);
+            if (row.status() > 0) {
+                remember(claim.scope(), claim.key(), row);
+                return row;
+            }
+            if (!row.fingerprint().equals(fingerprint)) {
+                return row; // mismatch is reported without waiting
+            }
+            if (takeOverLapsed(claim)) {
+                return null;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                return STILL_RUNNING;
+            }
+            sleep();
+        }
+    }
+
+    /**
+     * Becomes owner of a claim nobody has renewed within the lease. Only one waiter wins: the
+     * others re-check the row after the winner's update and no longer find it lapsed.
+     */
+    private boolean takeOverLapsed(Claim claim) {
+        Instant now = Instant.now();
+        int taken = jdbcTemplate.update("""
+                UPDATE idempotency_records SET claimed_at = ?, owner = ?
+                WHERE scope = ? AND idem_key = ? AND response_status IS NULL
+                  AND COALESCE(claimed_at, created_at) < ?
+                """, Timestamp.from(now), claim.owner(), claim.scope(), claim.key(), Timestamp.from(now.minus(lease)));
+        if (taken == 0) return false;
+        log.warn("Took over {} {} from an owner whose lease lapsed", HEADER, claim.key());
+        owned.add(claim);
+        return true;
+    }
+
+    /** Heartbeat for claims whose requests are still running here. */
+    @Scheduled(fixedDelayString = "${app.idempotency.heartbeat-ms:5000}")
+    public void renewLeases() {
+        if (owned.isEmpty()) return;
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> args = owned.stream()
+                .map(c -> new Object[]{now, c.scope(), c.key(), c.owner()})
+                .toList();
+        jdbcTemplate.batchUpdate("""
+                UPDATE idempotency_records SET claimed_at = ?
+                WHERE scope = ? AND idem_key = ? AND owner = ? AND response_status IS NULL
+                """, args);
+    }
+
+    /** Runs the action as owner of the key, records its response and hands it to in-process waiters. */
+    private ResponseEntity<?> run(Claim claim, String fingerprint, Supplier<ResponseEntity<?>> action,
+                                  CompletableFuture<StoredResponse> waiters) {
+        try {
+            ResponseEntity<?> response;
+            try {
+                response = action.get();
+            } catch (RuntimeException e) {
+                release(claim);
+                throw e;
+            }
+            int status = response.getStatusCode().value();
+            String body;
+            try {
+                body = response.getBody() == null ? null : objectMapper.writeValueAsString(response.getBody());
+            } catch (JsonProcessingException e) {
+                release(claim);
+                throw new IllegalStateException("Cannot record response for " + HEADER, e);
+            }
+            StoredResponse stored = new StoredResponse(fingerprint, status, body);
+            if (status >= 500) {
+                release(claim);
+            } else {
+                int recorded = jdbcTemplate.update("""
+                        UPDATE idempotency_records SET response_status = ?, response_body = ?
+                        WHERE scope = ? AND idem_key = ? AND owner = ?
+                        """, status, body, claim.scope(), claim.key(), claim.owner());
+                if (recorded == 0) {
+                    log.warn("Lease on {} {} lapsed while the request ran; another request took it over", HEADER, claim.key());
+                }
+                remember(claim.scope(), claim.key(), stored);
+            }
+            waiters.complete(stored);
+            return response;
+        } finally {
+            owned.remove(claim);
+        }
+    }
+
+    private ResponseEntity<?> await(CompletableFuture<StoredResponse> future, String fingerprint) {
+        try {
+            StoredResponse stored = future.get(waitMillis, TimeUnit.MILLISECONDS);
+            return stored == STILL_RUNNING ? stillRunning() : replayIfSameRequest(stored, fingerprint);
+        } catch (TimeoutException e) {
+            return stillRunning();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ResponseEntity<?> stillRunning() {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("message", "A request with this " + HEADER + " is still in progress"));
+    }
+
+    private static ResponseEntity<?> replayIfSameRequest(StoredResponse stored, String fingerprint) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            return ResponseEntity.unprocessableEntity()
+                    .body(Map.of("message", HEADER + " was already used for a different request"));
+        }
+        return stored.replay();
+    }
+
+    private void remember(String scope, String key, StoredResponse stored) {
+        synchronized (completed) {
+            completed.put(scope + ":" + key, stored);
+        }
+    }
+
+    private void release(Claim claim) {
+        jdbcTemplate.update("DELETE FROM idempotency_records WHERE scope = ? AND idem_key = ? AND owner = ? AND response_status IS NULL",
+                claim.scope(), claim.key(), claim.owner());
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Drops records past the retention period; clients must not retry with a key older than that. */
+    @Scheduled(initialDelayString = "${app.idempotency.cleanup-interval-ms:3600000}",
+            fixedDelayString = "${app.idempotency.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        int removed = jdbcTemplate.update("DELETE FROM idempotency_records WHERE created_at < ?",
+                Timestamp.from(Instant.now().minus(retention)));
+        if (removed > 0) {
+            log.info("Removed {} expired idempotency records", removed);
+        }
+    }
+}
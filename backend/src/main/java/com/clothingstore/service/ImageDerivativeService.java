@@ -0,0 +1,331 @@
+package com.clothingstore.service;
+
+import com.clothingstore.catalog.CatalogChangedEvent;
+import com.clothingstore.dto.ImageJobStatus;
+import com.clothingstore.entity.Product;
+import com.clothingstore.repository.ProductRepository;
+import com.clothingstore.util.ExifOrientation;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates resized progressive JPEG copies of uploaded images on a small bounded worker pool, so
+ * the upload request returns as soon as the original is stored. When a job finishes, products whose
+ * imageUrl is the original get the derivative URLs; products saved later pick them up in
+ * {@link #applyDerivatives}. Recent jobs are kept in memory for the status endpoint.
+ */
+@Slf4j
+@Service
+public class ImageDerivativeService {
+
+    private static final int MAX_TRACKED_JOBS = 500;
+    private static final float JPEG_QUALITY = 0.82f;
+    /** 50 megapixels, about 200 MB decoded; well above any phone camera. */
+    private static final long MAX_SOURCE_PIXELS = 50_000_000L;
+
+    private record Spec(String name, String suffix, int maxWidth) {
+    }
+
+    private static final List<Spec> SPECS = List.of(
+            new Spec("thumbnail", "_thumb.jpg", 240),
+            new Spec("card", "_card.jpg", 600),
+            new Spec("detail", "_detail.jpg", 1200));
+
+    private final ProductRepository productRepository;
+    private final UploadStorage uploadStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ImageJobStatus> jobs = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ImageJobStatus> eldest) {
+                    return size() > MAX_TRACKED_JOBS;
+                }
+            });
+
+    @Value("${app.base-url:http://localhost:8080}")
+    private String baseUrl;
+
+    public ImageDerivativeService(ProductRepository productRepository,
+                                  UploadStorage uploadStorage,
+                                  TransactionTemplate transactionTemplate,
+                                  ApplicationEventPublisher eventPublisher,
+                                  @Value("${app.images.workers:2}") int workers,
+                                  @Value("${app.images.queue-capacity:100}") int queueCapacity) {
+        this.productRepository = productRepository;
+        this.uploadStorage = uploadStorage;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "image-derivatives-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues derivative generation for a stored upload. Never blocks: if the queue is full the job
+     * is reported as failed and the original image is still usable.
+     */
+    public ImageJobStatus submit(Path original, String originalUrl) {
+        String id = UUID.randomUUID().toString();
+        Map<String, String> existing = existingDerivatives(originalUrl);
+        if (!existing.isEmpty()) {
+            // same bytes were uploaded before (content-addressed names), nothing to regenerate
+            ImageJobStatus done = new ImageJobStatus(id, originalUrl, ImageJobStatus.State.DONE,
+                    existing.size(), SPECS.size(), existing, null);
+            update(done);
+            return done;
+        }
+        ImageJobStatus queued = new ImageJobStatus(id, originalUrl, ImageJobStatus.State.QUEUED, 0, SPECS.size(), Map.of(), null);
+        update(queued);
+        try {
+            executor.execute(() -> process(id, original, originalUrl));
+        } catch (RejectedExecutionException e) {
+            fail(id, originalUrl, Map.of(), "Derivative queue is full");
+        }
+        return jobs.getOrDefault(id, queued);
+    }
+
+    public ImageJobStatus getJob(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Sets (or clears) a product's derivative URLs from its imageUrl, for products saved after the
+     * job for their image already finished.
+     */
+    public void applyDerivatives(Product product) {
+        Map<String, String> urls = existingDerivatives(product.getImageUrl());
+        product.setThumbnailUrl(urls.get("thumbnail"));
+        product.setCardImageUrl(urls.get("card"));
+        product.setDetailImageUrl(urls.get("detail"));
+    }
+
+    private Map<String, String> existingDerivatives(String imageUrl) {
+        String prefix = baseUrl + "/uploads/";
+        if (imageUrl == null || !imageUrl.startsWith(prefix)) return Map.of();
+        String filename = imageUrl.substring(prefix.length());
+        Path original = uploadStorage.resolve(filename);
+        if (original == null) return Map.of();
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (Spec spec : SPECS) {
+            Path derivative = derivativePath(original, spec);
+            if (!Files.isRegularFile(derivative)) return Map.of();
+            urls.put(spec.name(), prefix + derivative.getFileName());
+        }
+        return urls;
+    }
+
+    private void process(String id, Path original, String originalUrl) {
+        update(new ImageJobStatus(id, originalUrl, ImageJobStatus.State.PROCESSING, 0, SPECS.size(), Map.of(), null));
+        Map<String, String> urls = new LinkedHashMap<>();
+        try {
+            BufferedImage source = readOriented(original);
+            if (source == null) {
+                fail(id, originalUrl, urls, "Unsupported image format");
+                return;
+            }
+            String prefix = baseUrl + "/uploads/";
+            for (Spec spec : SPECS) {
+                Path target = derivativePath(original, spec);
+                writeProgressiveJpeg(resize(source, spec.maxWidth()), target);
+                urls.put(spec.name(), prefix + target.getFileName());
+                update(new ImageJobStatus(id, originalUrl, ImageJobStatus.State.PROCESSING, urls.size(), SPECS.size(),
+                        Map.copyOf(urls), null));
+            }
+            attachToProducts(originalUrl, urls);
+            update(new ImageJobStatus(id, originalUrl, ImageJobStatus.State.DONE, urls.size(), SPECS.size(),
+                    Map.copyOf(urls), null));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Image derivatives failed for {}: {}", original.getFileName(), e.getMessage());
+            fail(id, originalUrl, urls, "Could not process image");
+        }
+    }
+
+    private void attachToProducts(String originalUrl, Map<String, String> urls) {
+        List<Long> ids = transactionTemplate.execute(status -> {
+            List<Long> matched = productRepository.findIdsByImageUrl(originalUrl);
+            if (!matched.isEmpty()) {
+                productRepository.updateImageDerivatives(originalUrl, urls.get("thumbnail"), urls.get("card"), urls.get("detail"));
+            }
+            return matched;
+        });
+        if (ids != null && !ids.isEmpty()) {
+            eventPublisher.publishEvent(CatalogChangedEvent.of(ids));
+        }
+    }
+
+    private BufferedImage readOriented(Path original) throws IOException {
+        BufferedImage image = decode(original);
+        if (image == null) return null;
+        int orientation;
+        try (InputStream in = Files.newInputStream(original)) {
+            orientation = ExifOrientation.read(in);
+        } catch (IOException e) {
+            orientation = ExifOrientation.NORMAL;
+        }
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 3 -> {
+                transform.translate(w, h);
+                transform.rotate(Math.PI);
+            }
+            case 6 -> {
+                transform.translate(h, 0);
+                transform.rotate(Math.PI / 2);
+            }
+            case 8 -> {
+                transform.translate(0, w);
+                transform.rotate(-Math.PI / 2);
+            }
+            default -> {
+                return image;
+            }
+        }
+        boolean swap = orientation != 3;
+        BufferedImage rotated = new BufferedImage(swap ? h : w, swap ? w : h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rotated.createGraphics();
+        g.drawImage(image, transform, null);
+        g.dispose();
+        return rotated;
+    }
+
+    /**
+     * Decodes after checking the dimensions in the header, so a small file that expands to a huge
+     * bitmap is rejected before any pixels are allocated.
+     */
+    private static BufferedImage decode(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_SOURCE_PIXELS) {
+                    throw new IOException("Image dimensions too large");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales to {@code maxWidth} (never up), halving in steps first so large photos do not alias,
+     * and flattens transparency onto white since the output is JPEG.
+     */
+    private static BufferedImage resize(BufferedImage source, int maxWidth) {
+        int targetWidth = Math.min(maxWidth, source.getWidth());
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * (targetWidth / (double) source.getWidth())));
+
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= targetWidth) {
+            current = draw(current, current.getWidth() / 2, Math.max(1, current.getHeight() / 2));
+        }
+        return draw(current, targetWidth, targetHeight);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return target;
+    }
+
+    private static void writeProgressiveJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(JPEG_QUALITY);
+
+        Path tmp = Files.createTempFile(target.getParent(), ".derivative-", ".tmp");
+        try {
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(tmp.toFile())) {
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Filenames of the derivatives of an uploaded file, whether or not they exist yet. */
+    public static List<String> derivativeFilenames(String originalFilename) {
+        return SPECS.stream().map(spec -> derivativeName(originalFilename, spec)).toList();
+    }
+
+    private static Path derivativePath(Path original, Spec spec) {
+        return original.resolveSibling(derivativeName(original.getFileName().toString(), spec));
+    }
+
+    private static String derivativeName(String name, Spec spec) {
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        return stem + spec.suffix();
+    }
+
+    private void fail(String id, String originalUrl, Map<String, String> urls, String error) {
+        update(new ImageJobStatus(id, originalUrl, ImageJobStatus.State.FAILED, urls.size(), SPECS.size(),
+                Map.copyOf(urls), error));
+    }
+
+    private void update(ImageJobStatus status) {
+        jobs.put(status.getId(), status);
+    }
+}
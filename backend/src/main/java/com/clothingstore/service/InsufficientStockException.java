@@ -0,0 +1,23 @@
+package com.clothingstore.service;
+
+import lombok.Getter;
+
+/**
+ * A conditional stock decrement matched no row: the SKU has less stock than requested.
+ */
+@Getter
+public class InsufficientStockException extends RuntimeException {
+
+    private final String sku;
+    private final int available;
+
+    public InsufficientStockException(String sku, int available) {
+        this(sku, available, "Insufficient stock for SKU " + sku + ". Available: " + available);
+    }
+
+    public InsufficientStockException(String sku, int available, String message) {
+        super(message);
+        this.sku = sku;
+        this.available = available;
+    }
+}
@@ -0,0 +1,53 @@
+package com.clothingstore.service;
+
+import com.clothingstore.repository.ProductVariantRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stock reservation with conditional UPDATEs instead of read-check-write, so concurrent checkouts
+ * for the same SKU can neither oversell nor fail on a stale read.
+ */
+@Service
+@RequiredArgsConstructor
+public class InventoryService {
+
+    private final ProductVariantRepository productVariantRepository;
+    private final HotSkuLedger hotSkuLedger;
+
+    /** True if stock for this SKU is held by the {@link HotSkuLedger} and persisted later. */
+    public boolean isDeferred(String sku) {
+        return hotSkuLedger.isHot(sku);
+    }
+
+    /**
+     * Decrements every SKU by its quantity ({@code stock = stock - qty WHERE stock >= qty}). SKUs are
+     * processed in ascending order so two checkouts sharing SKUs lock the rows in the same order and
+     * cannot deadlock. Runs in the caller's transaction; the exception rolls back decrements already
+     * applied. Hot SKUs are taken from the {@link HotSkuLedger} first, without touching the row.
+     *
+     * @throws InsufficientStockException for the first SKU that does not have enough stock
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Map<String, Integer> quantitiesBySku) {
+        Map<String, Integer> hot = new TreeMap<>();
+        Map<String, Integer> rows = new TreeMap<>();
+        quantitiesBySku.forEach((sku, qty) -> (hotSkuLedger.isHot(sku) ? hot : rows).put(sku, qty));
+        if (!hot.isEmpty()) {
+            hotSkuLedger.reserve(hot);
+        }
+        for (Map.Entry<String, Integer> line : rows.entrySet()) {
+            String sku = line.getKey();
+            int qty = line.getValue();
+            if (productVariantRepository.decrementStock(sku, qty) == 0) {
+                int available = productVariantRepository.findStockBySku(sku).orElse(0);
+                throw new InsufficientStockException(sku, available);
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.clothingstore.service;
+
+import com.clothingstore.dto.CreateOrderRequest;
+import com.clothingstore.entity.Order;
+import com.clothingstore.repository.ProductVariantRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for checkouts. Concurrent {@link #submit} calls are queued and a worker places
+ * whatever has accumulated (up to {@code max-batch}, waiting at most {@code window-ms} for more) in
+ * one transaction. Each order is validated and reserves its stock inside its own savepoint: an order
+ * that fails is rolled back alone and only its caller sees the error. The orders that passed are
+ * then saved and flushed together, so their inserts share JDBC batches and the batch pays for one
+ * commit instead of one per order. If the flush or commit fails nothing was written, so the orders
+ * are retried one transaction each.
+ * <p>
+ * A batch first locks every variant row it will decrement, in SKU order, the same order single
+ * checkouts ({@link OrderService#createOrder}, used when the queue is full) and reservation expiry
+ * use, so it cannot deadlock with them. Hot SKUs are not locked; their rows are only written by the
+ * ledger's flush. Any other lock conflict the database resolves by aborting a transaction ends up in
+ * the same one-by-one retry.
+ * <p>
+ * After-commit work per order is only bookkeeping (the catalog refresh is queued to a background
+ * thread), so callers are released as soon as the batch has committed.
+ */
+@Slf4j
+@Service
+public class OrderIngestService {
+
+    private final OrderService orderService;
+    private final InventoryService inventoryService;
+    private final ProductVariantRepository productVariantRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final boolean enabled;
+    private final int maxBatch;
+    private final long windowNanos;
+    private final BlockingQueue<PendingOrder> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    record PendingOrder(CreateOrderRequest request, CompletableFuture<Order> result) {
+    }
+
+    public OrderIngestService(OrderService orderService,
+                              InventoryService inventoryService,
+                              ProductVariantRepository productVariantRepository,
+                              TransactionTemplate transactionTemplate,
+                              EntityManager entityManager,
+                              @Value("${app.orders.ingest.enabled:true}") boolean enabled,
+                              @Value("${app.orders.ingest.workers:1}") int workerCount,
+                              @Value("${app.orders.ingest.max-batch:64}") int maxBatch,
+                              @Value("${app.orders.ingest.window-ms:2}") long windowMillis,
+                              @Value("${app.orders.ingest.queue-capacity:10000}") int queueCapacity) {
+        this.orderService = orderService;
+        this.inventoryService = inventoryService;
+        this.productVariantRepository = productVariantRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        if (enabled) {
+            for (int i = 1; i <= workerCount; i++) {
+                Thread worker = new Thread(this::drainLoop, "order-ingest-" + i);
+                worker.setDaemon(true);
+                worker.start();
+                workers.add(worker);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (PendingOrder pending; (pending = queue.poll()) != null; ) {
+            pending.result().completeExceptionally(new IllegalStateException("Order service is shutting down"));
+        }
+    }
+
+    /**
+     * Places the order and blocks until its batch has committed. Exceptions are the ones
+     * {@link OrderService#createOrder} would throw. Falls back to a transaction of its own when
+     * batching is disabled or the queue is full.
+     */
+    public Order submit(CreateOrderRequest request) {
+        if (!enabled || !running) {
+            return orderService.createOrder(request);
+        }
+        PendingOrder pending = new PendingOrder(request, new CompletableFuture<>());
+        if (!queue.offer(pending)) {
+            return orderService.createOrder(request);
+        }
+        try {
+            return pending.result().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+    }
+
+    private void drainLoop() {
+        List<PendingOrder> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - batch.size());
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+                placeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(p -> p.result().completeExceptionally(new IllegalStateException("Order service is shutting down")));
+                return;
+            } catch (RuntimeException e) {
+                log.error("Order ingest batch failed unexpectedly", e);
+                batch.forEach(p -> p.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void placeBatch(List<PendingOrder> batch) {
+        List<Order> placed = new ArrayList<>(batch.size());
+        List<PendingOrder> accepted = new ArrayList<>(batch.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                lockVariantRows(batch);
+                List<OrderService.PreparedOrder> prepared = new ArrayList<>(batch.size());
+                for (PendingOrder pending : batch) {
+                    try {
+                        prepared.add(orderService.prepareOrderNested(pending.request()));
+                        accepted.add(pending);
+                    } catch (RuntimeException e) {
+                        // the savepoint returned this order's stock; nothing of it is in the session
+                        pending.result().completeExceptionally(e);
+                    }
+                }
+                for (OrderService.PreparedOrder order : prepared) {
+                    placed.add(orderService.persist(order));
+                }
+                entityManager.flush();
+            });
+        } catch (RuntimeException e) {
+            List<PendingOrder> retry = batch.stream().filter(p -> !p.result().isDone()).toList();
+            log.warn("Group commit of {} orders failed ({}); placing them one by one", retry.size(), e.getMessage());
+            for (PendingOrder pending : retry) {
+                try {
+                    pending.result().complete(orderService.createOrder(pending.request()));
+                } catch (RuntimeException single) {
+                    pending.result().completeExceptionally(single);
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < accepted.size(); i++) {
+            accepted.get(i).result().complete(placed.get(i));
+        }
+    }
+
+    /** Takes the row locks of every non-hot SKU in the batch up front, in SKU order. */
+    private void lockVariantRows(List<PendingOrder> batch) {
+        Set<String> skus = new TreeSet<>();
+        for (PendingOrder pending : batch) {
+            List<CreateOrderRequest.OrderItemRequest> items = pending.request().getItems();
+            if (items == null) continue;
+            for (CreateOrderRequest.OrderItemRequest item : items) {
+                String sku = item.getSku() != null ? item.getSku().trim() : "";
+                if (!sku.isEmpty() && !inventoryService.isDeferred(sku)) skus.add(sku);
+            }
+        }
+        if (!skus.isEmpty()) {
+            productVariantRepository.lockBySkuIn(skus);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.clothingstore.service;
 
+import com.clothingstore.catalog.CatalogChangedEvent;
 import com.clothingstore.dto.CreateOrderRequest;
 import com.clothingstore.entity.Order;
 import com.clothingstore.entity.OrderItem;
@@ -10,10 +11,16 @@ import com.clothingstore.repository.OrderRepository;
 import com.clothingstore.repository.ProductVariantRepository;
 import com.clothingstore.util.InputSanitizer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -23,9 +30,44 @@ public class OrderService {
 
     private final OrderRepository orderRepository;
     private final ProductVariantRepository productVariantRepository;
+    private final InventoryService inventoryService;
+    private final ReservationExpiryService reservationExpiryService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Validates the order and reserves its stock inside a savepoint of the caller's transaction, without
+     * persisting anything: if it throws, rolling back the savepoint returns the stock it took and no
+     * pending insert of another order is lost. Pass the result to {@link #persist}. Used by
+     * {@link OrderIngestService}, which prepares a whole batch and then persists it with one flush.
+     */
+    @Transactional(propagation = Propagation.NESTED)
+    public PreparedOrder prepareOrderNested(CreateOrderRequest request) {
+        return prepare(request);
+    }
 
     @Transactional
     public Order createOrder(CreateOrderRequest request) {
+        return persist(prepare(request));
+    }
+
+    /** An order whose stock is reserved but which is not saved yet, and the products it touched. */
+    public record PreparedOrder(Order order, Set<Long> touchedProductIds) {
+    }
+
+    /**
+     * Saves a prepared order and starts its reservation timer. Inserts are left to the next flush,
+     * so consecutive orders are written in shared JDBC batches.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Order persist(PreparedOrder prepared) {
+        Order saved = orderRepository.save(prepared.order());
+        reservationExpiryService.track(saved.getId(), saved.getReservedUntil());
+        // Stock changed: refresh the storefront snapshot once this transaction commits
+        eventPublisher.publishEvent(CatalogChangedEvent.of(prepared.touchedProductIds()));
+        return saved;
+    }
+
+    private PreparedOrder prepare(CreateOrderRequest request) {
         String guestEmail = (request.getGuestEmail() != null && !request.getGuestEmail().isBlank())
                 ? InputSanitizer.sanitizeText(request.getGuestEmail().trim(), EMAIL_MAX_LENGTH)
                 : "guest@example.com";
@@ -36,30 +78,27 @@ public class OrderService {
         Order order = new Order();
         order.setGuestEmail(guestEmail);
         order.setStatus(OrderStatus.PENDING);
+        order.setReservedUntil(reservationExpiryService.newDeadline());
         order.setItems(new ArrayList<>());
 
         double totalPrice = 0;
+        Set<Long> touchedProductIds = new HashSet<>();
+        Map<String, Integer> quantitiesBySku = new HashMap<>();
+        Map<String, ProductVariant> variantsBySku = loadVariants(request);
 
         for (var itemReq : request.getItems()) {
-            String sku = itemReq.getSku() != null ? itemReq.getSku().trim() : null;
-            if (sku == null || sku.isBlank()) {
-                throw new IllegalArgumentException("SKU is required for each order item");
+            String sku = itemReq.getSku().trim();
+            ProductVariant variant = variantsBySku.get(sku);
+            if (variant == null) {
+                throw new IllegalArgumentException("Product variant not found for SKU: " + sku);
             }
 
-            ProductVariant variant = productVariantRepository.findBySku(sku)
-                    .orElseThrow(() -> new IllegalArgumentException("Product variant not found for SKU: " + sku));
-
             int qty = itemReq.getQuantity() != null ? itemReq.getQuantity() : 1;
             if (qty < 1) continue;
-
-            if (variant.getStock() < qty) {
-                throw new RuntimeException("Insufficient stock for " + variant.getProduct().getName() + " (Size " + variant.getSize() + "). Available: " + variant.getStock());
-            }
-
-            variant.setStock(variant.getStock() - qty);
-            productVariantRepository.save(variant);
+            quantitiesBySku.merge(sku, qty, Integer::sum);
 
             Product product = variant.getProduct();
+            touchedProductIds.add(product.getId());
             String size = itemReq.getSize() != null ? itemReq.getSize() : variant.getSize();
             double lineTotal = product.getPrice() * qty;
             totalPrice += lineTotal;
@@ -75,10 +114,37 @@ public class OrderService {
             orderItem.setImageUrl(product.getImageUrl());
             orderItem.setColor(product.getColor());
             orderItem.setProductVariant(variant);
+            // hot SKU lines are subtracted from product_variants by the ledger's write-behind flush
+            orderItem.setStockCommitted(!inventoryService.isDeferred(sku));
             order.getItems().add(orderItem);
         }
 
+        try {
+            inventoryService.reserve(quantitiesBySku);
+        } catch (InsufficientStockException e) {
+            ProductVariant variant = variantsBySku.get(e.getSku());
+            throw new InsufficientStockException(e.getSku(), e.getAvailable(),
+                    "Insufficient stock for " + variant.getProduct().getName() + " (Size " + variant.getSize() + "). Available: " + e.getAvailable());
+        }
+
         order.setTotalPrice(totalPrice);
-        return orderRepository.save(order);
+        return new PreparedOrder(order, touchedProductIds);
+    }
+
+    /** Resolves every line's SKU (with its product and variants) in one query, keyed by SKU. */
+    private Map<String, ProductVariant> loadVariants(CreateOrderRequest request) {
+        Set<String> skus = new HashSet<>();
+        for (var itemReq : request.getItems()) {
+            String sku = itemReq.getSku() != null ? itemReq.getSku().trim() : null;
+            if (sku == null || sku.isBlank()) {
+                throw new IllegalArgumentException("SKU is required for each order item");
+            }
+            skus.add(sku);
+        }
+        Map<String, ProductVariant> variantsBySku = new HashMap<>();
+        for (ProductVariant variant : productVariantRepository.findBySkuIn(skus)) {
+            variantsBySku.put(variant.getSku(), variant);
+        }
+        return variantsBySku;
     }
 }
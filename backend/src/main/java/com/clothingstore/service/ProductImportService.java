@@ -0,0 +1,398 @@
+package com.clothingstore.service;
+
+import com.clothingstore.catalog.CatalogChangedEvent;
+import com.clothingstore.dto.CreateProductRequest;
+import com.clothingstore.dto.VariantRequest;
+import com.clothingstore.entity.Product;
+import com.clothingstore.util.CsvRecordReader;
+import com.clothingstore.util.CsvWriter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk product import from a CSV or NDJSON stream. Rows are read one at a time, validated and
+ * sanitized like {@link AdminProductService#create}, and written with JDBC batch inserts in
+ * chunks of {@value #CHUNK_SIZE}, each chunk in its own transaction. Memory use is bounded by one
+ * chunk. Progress and per-row errors are written to {@code out} as NDJSON while the import runs.
+ *
+ * <p>CSV needs a header row; recognised columns are name, description, price, imageUrl,
+ * additionalImageUrls, category, color, visible and variants ({@code S:10|M:5}). NDJSON lines use
+ * the same shape as the create product request. A single quote in front of a leading =, +, - or @
+ * (the formula guard added by the CSV export) is removed.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    /** allocationSize of the entity sequences: each nextval hands out the block [value, value + 49]. */
+    private static final int ID_BLOCK_SIZE = 50;
+    private static final String NEXT_PRODUCT_ID_BLOCKS =
+            "SELECT nextval('products_seq') FROM generate_series(1, ?)";
+    private static final String NEXT_VARIANT_ID_BLOCKS =
+            "SELECT nextval('product_variants_seq') FROM generate_series(1, ?)";
+    private static final String INSERT_PRODUCT =
+            "INSERT INTO products (id, name, description, price, image_url, additional_image_urls, thumbnail_url, "
+                    + "card_image_url, detail_image_url, category, color, visible, created_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_VARIANT =
+            "INSERT INTO product_variants (id, product_id, size, stock, sku) VALUES (?, ?, ?, ?, ?)";
+
+    private final AdminProductService adminProductService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public void importProducts(InputStream body, Format format, OutputStream out) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        ImportRun run = new ImportRun(out);
+        if (format == Format.CSV) {
+            readCsv(reader, run);
+        } else {
+            readNdjson(reader, run);
+        }
+        run.finish();
+    }
+
+    private void readCsv(Reader reader, ImportRun run) throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(reader, MAX_RECORD_LENGTH);
+        Map<String, Integer> columns;
+        try {
+            List<String> header = csv.next();
+            if (header == null) return;
+            columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+        } catch (IllegalArgumentException e) {
+            run.abort(1, "Invalid header: " + e.getMessage());
+            return;
+        }
+        for (String required : List.of("name", "price", "category")) {
+            if (!columns.containsKey(required)) {
+                run.abort(1, "Missing required column: " + required);
+                return;
+            }
+        }
+
+        while (true) {
+            long row = csv.getLineNumber();
+            List<String> fields;
+            try {
+                fields = csv.next();
+            } catch (IllegalArgumentException e) {
+                // the reader cannot resynchronise inside a broken record
+                run.abort(row, e.getMessage());
+                return;
+            }
+            if (fields == null) return;
+            if (fields.size() == 1 && fields.get(0).isBlank()) continue;
+            try {
+                run.accept(row, fromCsv(fields, columns));
+            } catch (IllegalArgumentException e) {
+                run.reject(row, e.getMessage());
+            }
+        }
+    }
+
+    private CreateProductRequest fromCsv(List<String> fields, Map<String, Integer> columns) {
+        CreateProductRequest request = new CreateProductRequest();
+        request.setName(column(fields, columns, "name"));
+        request.setDescription(column(fields, columns, "description"));
+        String price = column(fields, columns, "price");
+        if (price != null) {
+            try {
+                request.setPrice(Double.parseDouble(price));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid price: " + price);
+            }
+        }
+        request.setImageUrl(column(fields, columns, "imageurl"));
+        request.setAdditionalImageUrls(column(fields, columns, "additionalimageurls"));
+        request.setCategory(column(fields, columns, "category"));
+        request.setColor(column(fields, columns, "color"));
+        String visible = column(fields, columns, "visible");
+        if (visible != null) {
+            if (!visible.equalsIgnoreCase("true") && !visible.equalsIgnoreCase("false")) {
+                throw new IllegalArgumentException("Invalid visible flag: " + visible);
+            }
+            request.setVisible(Boolean.parseBoolean(visible));
+        }
+        String variants = column(fields, columns, "variants");
+        if (variants != null) {
+            request.setVariants(parseVariants(variants));
+        }
+        return request;
+    }
+
+    private static String column(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size()) return null;
+        String value = CsvWriter.stripFormulaGuard(fields.get(index).trim());
+        return value.isEmpty() ? null : value;
+    }
+
+    /** Parses {@code S:10|M:5}. */
+    private static List<VariantRequest> parseVariants(String value) {
+        List<VariantRequest> variants = new ArrayList<>();
+        for (String part : value.split("\\|")) {
+            if (part.isBlank()) continue;
+            int colon = part.lastIndexOf(':');
+            VariantRequest vr = new VariantRequest();
+            try {
+                vr.setSize(colon < 0 ? part.trim() : part.substring(0, colon).trim());
+                vr.setStock(colon < 0 ? 0 : Integer.parseInt(part.substring(colon + 1).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid variant: " + part.trim());
+            }
+            variants.add(vr);
+        }
+        return variants;
+    }
+
+    private void readNdjson(Reader reader, ImportRun run) throws IOException {
+        StringBuilder line = new StringBuilder();
+        long row = 0;
+        while (readLine(reader, line)) {
+            row++;
+            if (line.length() > MAX_RECORD_LENGTH) {
+                run.reject(row, "Line exceeds " + MAX_RECORD_LENGTH + " characters");
+                continue;
+            }
+            if (line.toString().isBlank()) continue;
+            try {
+                run.accept(row, objectMapper.readValue(line.toString(), CreateProductRequest.class));
+            } catch (JsonProcessingException e) {
+                run.reject(row, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads the next line into {@code line}, keeping at most one character past the limit so an
+     * over-long line is detectable without buffering it. Returns false at end of input.
+     */
+    private static boolean readLine(Reader reader, StringBuilder line) throws IOException {
+        line.setLength(0);
+        int c = reader.read();
+        if (c == -1) return false;
+        while (c != -1 && c != '\n') {
+            if (c != '\r' && line.length() <= MAX_RECORD_LENGTH) line.append((char) c);
+            c = reader.read();
+        }
+        return true;
+    }
+
+    private PendingRow toPendingRow(long row, CreateProductRequest request) {
+        Set<ConstraintViolation<CreateProductRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        Product product = adminProductService.toNewProduct(request);
+
+        List<VariantRequest> variants = new ArrayList<>();
+        if (request.getVariants() != null) {
+            Set<String> sizes = new HashSet<>();
+            for (VariantRequest vr : request.getVariants()) {
+                if (vr.getSize() == null || vr.getSize().isBlank()) continue;
+                String size = vr.getSize().trim();
+                if (!sizes.add(size)) {
+                    throw new IllegalArgumentException("Duplicate variant size: " + size);
+                }
+                VariantRequest normalized = new VariantRequest();
+                normalized.setSize(size);
+                normalized.setStock(Math.max(0, vr.getStock()));
+                variants.add(normalized);
+            }
+        }
+        return new PendingRow(row, product, variants);
+    }
+
+    /**
+     * Inserts one chunk in a single transaction: one query each to reserve product and variant ids,
+     * then one batch for the products and one for their variants. Returns the new product ids.
+     */
+    private List<Long> insertChunk(List<PendingRow> rows) {
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = reserveIds(NEXT_PRODUCT_ID_BLOCKS, rows.size());
+            List<Long> variantIds = reserveIds(NEXT_VARIANT_ID_BLOCKS,
+                    rows.stream().mapToInt(row -> row.variants().size()).sum());
+            List<Object[]> variantArgs = new ArrayList<>(variantIds.size());
+            for (int i = 0; i < rows.size(); i++) {
+                Long id = ids.get(i);
+                rows.get(i).product().setId(id);
+                for (VariantRequest vr : rows.get(i).variants()) {
+                    variantArgs.add(new Object[]{variantIds.get(variantArgs.size()), id, vr.getSize(), vr.getStock(),
+                            id + "-" + vr.getSize()});
+                }
+            }
+            jdbcTemplate.batchUpdate(INSERT_PRODUCT, rows, rows.size(), (ps, row) -> {
+                Product p = row.product();
+                ps.setLong(1, p.getId());
+                ps.setString(2, p.getName());
+                ps.setString(3, p.getDescription());
+                ps.setDouble(4, p.getPrice());
+                ps.setString(5, p.getImageUrl());
+                ps.setString(6, p.getAdditionalImageUrls());
+                ps.setString(7, p.getThumbnailUrl());
+                ps.setString(8, p.getCardImageUrl());
+                ps.setString(9, p.getDetailImageUrl());
+                ps.setString(10, p.getCategory());
+                ps.setString(11, p.getColor());
+                ps.setBoolean(12, p.getVisible());
+                ps.setTimestamp(13, Timestamp.valueOf(p.getCreatedAt()));
+            });
+            if (!variantArgs.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_VARIANT, variantArgs,
+                        new int[]{Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.INTEGER, Types.VARCHAR});
+            }
+            return ids;
+        });
+    }
+
+    /** Takes whole pooled-lo blocks from a sequence: one nextval per 50 ids, so nothing else is handed them. */
+    private List<Long> reserveIds(String nextBlocksSql, int count) {
+        if (count == 0) return List.of();
+        int blocks = (count + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+        List<Long> ids = new ArrayList<>(count);
+        for (Long lo : jdbcTemplate.queryForList(nextBlocksSql, Long.class, blocks)) {
+            for (int i = 0; i < ID_BLOCK_SIZE && ids.size() < count; i++) {
+                ids.add(lo + i);
+            }
+        }
+        return ids;
+    }
+
+    private record PendingRow(long row, Product product, List<VariantRequest> variants) {
+    }
+
+    /** State of one import: the pending chunk, counters and the progress stream. */
+    private final class ImportRun {
+
+        private final OutputStream out;
+        private final List<PendingRow> chunk = new ArrayList<>(CHUNK_SIZE);
+        private long rowsRead;
+        private long imported;
+        private long failed;
+        private boolean aborted;
+
+        ImportRun(OutputStream out) {
+            this.out = out;
+        }
+
+        void accept(long row, CreateProductRequest request) throws IOException {
+            rowsRead++;
+            try {
+                chunk.add(toPendingRow(row, request));
+            } catch (IllegalArgumentException e) {
+                failed++;
+                writeError(row, e.getMessage());
+                return;
+            }
+            if (chunk.size() == CHUNK_SIZE) {
+                flushChunk();
+            }
+        }
+
+        void reject(long row, String message) throws IOException {
+            rowsRead++;
+            failed++;
+            writeError(row, message);
+        }
+
+        void abort(long row, String message) throws IOException {
+            aborted = true;
+            writeError(row, message);
+        }
+
+        void finish() throws IOException {
+            flushChunk();
+            Map<String, Object> done = counters("done");
+            done.put("aborted", aborted);
+            write(done);
+            out.flush();
+        }
+
+        private void flushChunk() throws IOException {
+            if (chunk.isEmpty()) return;
+            try {
+                List<Long> ids = insertChunk(chunk);
+                imported += ids.size();
+                eventPublisher.publishEvent(CatalogChangedEvent.of(ids));
+            } catch (DataAccessException | TransactionException e) {
+                failed += chunk.size();
+                String message = "Chunk rejected by database: " + rootMessage(e);
+                for (PendingRow row : chunk) {
+                    writeError(row.row(), message);
+                }
+            }
+            chunk.clear();
+            write(counters("progress"));
+            out.flush();
+        }
+
+        private Map<String, Object> counters(String type) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("type", type);
+            line.put("rowsRead", rowsRead);
+            line.put("imported", imported);
+            line.put("failed", failed);
+            return line;
+        }
+
+        private void writeError(long row, String message) throws IOException {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("type", "error");
+            line.put("row", row);
+            line.put("message", message);
+            write(line);
+        }
+
+        private void write(Map<String, Object> line) throws IOException {
+            out.write(objectMapper.writeValueAsBytes(line));
+            out.write('\n');
+        }
+
+        private String rootMessage(Exception e) {
+            Throwable cause = e instanceof DataAccessException dae ? dae.getMostSpecificCause() : e;
+            return cause.getMessage();
+        }
+    }
+}
@@ -1,35 +1,196 @@
 package com.clothingstore.service;
 
+import com.clothingstore.catalog.CatalogSnapshot;
+import com.clothingstore.catalog.CatalogSnapshotManager;
+import com.clothingstore.catalog.CatalogSort;
+import com.clothingstore.dto.CursorPage;
+import com.clothingstore.catalog.FacetResult;
+import com.clothingstore.catalog.ProductDetailCache;
+import com.clothingstore.catalog.SerializedResponse;
+import com.clothingstore.dto.FacetedProductsResponse;
+import com.clothingstore.dto.ProductListItemDTO;
+import com.clothingstore.dto.ProductSuggestionDTO;
+import com.clothingstore.dto.VariantDTO;
 import com.clothingstore.entity.Product;
 import com.clothingstore.repository.ProductRepository;
+import com.clothingstore.util.CursorCodec;
 import com.clothingstore.util.InputSanitizer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
 
     private static final int CATEGORY_MAX_LENGTH = 100;
+    private static final int SEARCH_MAX_LENGTH = 100;
+    private static final int FACET_VALUE_MAX_LENGTH = 100;
+    private static final int MAX_VALUES_PER_FACET = 20;
 
     private final ProductRepository productRepository;
+    private final CatalogSnapshotManager catalogSnapshotManager;
+    private final ObjectMapper objectMapper;
+    private final ProductDetailCache productDetailCache;
+
+    /**
+     * Current catalog version; its ETag changes on every product or stock change.
+     */
+    public CatalogSnapshot getCatalog() {
+        return catalogSnapshotManager.current();
+    }
 
     public List<Product> getAllProducts(String category) {
+        return getAllProducts(catalogSnapshotManager.current(), category);
+    }
+
+    /**
+     * Served from the in-memory catalog snapshot; no database access.
+     */
+    public List<Product> getAllProducts(CatalogSnapshot snapshot, String category) {
         String sanitized = InputSanitizer.sanitizeSearch(category, CATEGORY_MAX_LENGTH);
         if (sanitized != null && !sanitized.isBlank()) {
-            return productRepository.findByVisibleTrueAndCategoryIgnoreCaseOrderByNameAsc(sanitized);
+            return snapshot.findByCategory(sanitized);
+        }
+        return snapshot.getProducts();
+    }
+
+    /**
+     * The product list for a category (or the whole catalog) as JSON bytes, serialized and gzipped
+     * once per catalog version. Unknown categories are serialized per call so junk input cannot grow the cache.
+     */
+    public SerializedResponse getSerializedProducts(CatalogSnapshot snapshot, String category) {
+        String sanitized = InputSanitizer.sanitizeSearch(category, CATEGORY_MAX_LENGTH);
+        if (sanitized == null) {
+            return snapshot.serialized("products", () -> toJson(snapshot.getProducts()));
+        }
+        if (!snapshot.hasCategory(sanitized)) {
+            return SerializedResponse.of(toJson(List.of()));
+        }
+        return snapshot.serialized("products:" + CatalogSnapshot.categoryKey(sanitized), () -> toJson(snapshot.findByCategory(sanitized)));
+    }
+
+    private byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize catalog", e);
+        }
+    }
+
+    /**
+     * One page of the storefront catalog in a stable order, from the in-memory snapshot.
+     * The cursor encodes the sort key and id of the last product shown, so pages stay
+     * consistent across catalog changes.
+     */
+    public CursorPage<ProductListItemDTO> getPage(CatalogSnapshot snapshot, String category, String sort, String cursor, int size) {
+        CatalogSort order = CatalogSort.fromParam(sort);
+        String sanitized = InputSanitizer.sanitizeSearch(category, CATEGORY_MAX_LENGTH);
+        List<Product> sorted = snapshot.sorted(sanitized, order);
+
+        int start = 0;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = CursorCodec.decode(cursor, 3);
+            if (!order.name().equals(position[0])) {
+                throw new IllegalArgumentException("Cursor does not match sort");
+            }
+            Product probe;
+            try {
+                probe = order.probe(position[1], Long.parseLong(position[2]));
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            // First product strictly after the cursor position
+            int i = Collections.binarySearch(sorted, probe, order.comparator());
+            start = i >= 0 ? i + 1 : -i - 1;
+        }
+
+        int end = Math.min(start + size, sorted.size());
+        List<ProductListItemDTO> content = sorted.subList(start, end).stream().map(this::toListItem).toList();
+        boolean hasNext = end < sorted.size();
+        String nextCursor = null;
+        if (hasNext) {
+            Product last = sorted.get(end - 1);
+            nextCursor = CursorCodec.encode(order.name(), order.cursorKey(last), String.valueOf(last.getId()));
+        }
+        return new CursorPage<>(content, nextCursor, hasNext, (long) sorted.size());
+    }
+
+    private ProductListItemDTO toListItem(Product p) {
+        ProductListItemDTO item = new ProductListItemDTO(p.getId(), p.getName(), p.getDescription(), p.getPrice(),
+                p.getImageUrl(), p.getAdditionalImageUrls(), p.getCategory(), p.getColor(), p.getSizes(), p.getVisible(),
+                p.getThumbnailUrl(), p.getCardImageUrl(), p.getDetailImageUrl());
+        p.getVariants().forEach(v -> item.getVariants().add(
+                new VariantDTO(v.getId(), p.getId(), v.getSize(), v.getStock(), v.getSku())));
+        return item;
+    }
+
+    /**
+     * Combined facet filtering with live counts, served from the in-memory facet bitmaps.
+     */
+    public FacetedProductsResponse filter(Map<String, List<String>> facetParams) {
+        Map<String, Set<String>> selected = new LinkedHashMap<>();
+        facetParams.forEach((facet, values) -> {
+            Set<String> sanitized = new LinkedHashSet<>();
+            for (String value : values) {
+                if (sanitized.size() == MAX_VALUES_PER_FACET) break;
+                String v = InputSanitizer.sanitizeSearch(value, FACET_VALUE_MAX_LENGTH);
+                if (v != null) sanitized.add(v);
+            }
+            selected.put(facet, sanitized);
+        });
+        FacetResult result = catalogSnapshotManager.current().filter(selected);
+        return new FacetedProductsResponse(result.products(), result.products().size(), result.facets());
+    }
+
+    /**
+     * Ranked full-text search over visible products (name, description, category, color).
+     */
+    public List<Product> search(String query, String category, int limit) {
+        String tsQuery = InputSanitizer.toPrefixTsQuery(query, SEARCH_MAX_LENGTH);
+        if (tsQuery == null) {
+            return List.of();
+        }
+        String sanitizedCategory = InputSanitizer.sanitizeSearch(category, CATEGORY_MAX_LENGTH);
+        return productRepository.searchVisibleFullText(tsQuery, sanitizedCategory, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Autocomplete from the in-memory prefix index; no database access.
+     */
+    public List<ProductSuggestionDTO> suggest(String query, int limit) {
+        String sanitized = InputSanitizer.sanitizeSearch(query, SEARCH_MAX_LENGTH);
+        if (sanitized == null) {
+            return List.of();
         }
-        return productRepository.findByVisibleTrueOrderByNameAsc();
+        return catalogSnapshotManager.current().suggest(sanitized, limit).stream()
+                .map(p -> new ProductSuggestionDTO(p.getId(), p.getName(), p.getCategory(), p.getColor(), p.getPrice(),
+                        p.getThumbnailUrl() != null ? p.getThumbnailUrl() : p.getImageUrl()))
+                .toList();
     }
 
+    /**
+     * Product page lookup through the detail cache: hits (including "not found") skip the database,
+     * and concurrent misses for one id share a single query.
+     */
     public Product getById(Long id) {
-        Product p = productRepository.findById(id)
+        return productDetailCache.get(id, this::loadVisible)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
-        if (Boolean.FALSE.equals(p.getVisible())) {
-            throw new RuntimeException("Product not found");
-        }
-        return p;
+    }
+
+    private Optional<Product> loadVisible(Long id) {
+        return productRepository.findById(id)
+                .filter(p -> !Boolean.FALSE.equals(p.getVisible()));
     }
 }
@@ -0,0 +1,241 @@
+package com.clothingstore.service;
+
+import com.clothingstore.catalog.CatalogChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Cancels PENDING orders whose checkout was never paid and returns their stock. Deadlines live in a
+ * hashed timing wheel (one slot per tick, entries carry their absolute tick so later rotations
+ * stay put), so tracking and cancelling are O(1) and each tick only looks at one slot. Expired
+ * orders are cancelled in batches. Outstanding deadlines are reloaded from {@code orders.reserved_until}
+ * on startup through a partial index, never by scanning the table.
+ */
+@Slf4j
+@Service
+public class ReservationExpiryService implements SmartInitializingSingleton {
+
+    private static final String CANCEL_SQL =
+            "UPDATE orders SET status = 'CANCELLED' WHERE id = ANY (?) AND status = 'PENDING' RETURNING id";
+
+    /** Hot SKU lines not flushed yet never reached product_variants: settle them without restoring. */
+    private static final String SETTLE_UNFLUSHED_SQL =
+            "UPDATE order_items SET stock_committed = true WHERE order_id = ANY (?) AND stock_committed = false RETURNING id";
+
+    /** Same lock order as checkouts (SKU order), so a restore cannot deadlock with an order batch. */
+    private static final String LOCK_VARIANTS_SQL = """
+        SELECT v.id FROM product_variants v
+        WHERE v.sku IN (SELECT sku FROM order_items WHERE order_id = ANY (?))
+        ORDER BY v.sku COLLATE "C" FOR UPDATE
+        """;
+
+    private static final String RESTORE_STOCK_SQL = """
+        UPDATE product_variants v SET stock = v.stock + t.qty
+        FROM (SELECT sku, SUM(quantity) AS qty FROM order_items
+              WHERE order_id = ANY (?) AND NOT (id = ANY (?)) GROUP BY sku) t
+        WHERE v.sku = t.sku
+        RETURNING v.product_id
+        """;
+
+    private static final String RELEASED_UNITS_SQL =
+            "SELECT sku, SUM(quantity) FROM order_items WHERE order_id = ANY (?) GROUP BY sku";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final HotSkuLedger hotSkuLedger;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long ttlMillis;
+    private final long tickMillis;
+    private final int batchSize;
+
+    private final List<Queue<Reservation>> wheel;
+    private final Map<Long, Reservation> outstanding = new ConcurrentHashMap<>();
+    /** Deadlines that fell into a slot the wheel had already passed, plus batches to retry. */
+    private final Queue<Reservation> overdue = new ConcurrentLinkedQueue<>();
+    private volatile long nextTick;
+
+    public ReservationExpiryService(JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    HotSkuLedger hotSkuLedger,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${app.orders.reservation.ttl-minutes:60}") long ttlMinutes,
+                                    @Value("${app.orders.reservation.tick-ms:1000}") long tickMillis,
+                                    @Value("${app.orders.reservation.wheel-slots:4096}") int wheelSlots,
+                                    @Value("${app.orders.reservation.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.hotSkuLedger = hotSkuLedger;
+        this.eventPublisher = eventPublisher;
+        this.ttlMillis = ttlMinutes * 60_000;
+        this.tickMillis = tickMillis;
+        this.batchSize = batchSize;
+        this.wheel = new ArrayList<>(wheelSlots);
+        for (int i = 0; i < wheelSlots; i++) {
+            wheel.add(new ConcurrentLinkedQueue<>());
+        }
+        this.nextTick = System.currentTimeMillis() / tickMillis;
+    }
+
+    private static final class Reservation {
+        final long orderId;
+        final long deadlineTick;
+        volatile boolean cancelled;
+
+        Reservation(long orderId, long deadlineTick) {
+            this.orderId = orderId;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    /** The reservation deadline for an order placed now. */
+    public LocalDateTime newDeadline() {
+        return LocalDateTime.now().plusNanos(ttlMillis * 1_000_000);
+    }
+
+    /** Starts the timer for an order, once the transaction creating it has committed. */
+    public void track(Long orderId, LocalDateTime deadline) {
+        long deadlineMillis = deadline.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            schedule(orderId, deadlineMillis);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                schedule(orderId, deadlineMillis);
+            }
+        });
+    }
+
+    /** Stops the timer, e.g. when the order is paid. The slot drops the entry lazily. */
+    public void cancel(Long orderId) {
+        Reservation reservation = outstanding.remove(orderId);
+        if (reservation != null) reservation.cancelled = true;
+    }
+
+    public int getOutstandingCount() {
+        return outstanding.size();
+    }
+
+    void schedule(long orderId, long deadlineMillis) {
+        Reservation reservation = new Reservation(orderId, Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis));
+        Reservation previous = outstanding.put(orderId, reservation);
+        if (previous != null) previous.cancelled = true;
+        if (reservation.deadlineTick <= nextTick) {
+            overdue.add(reservation);
+        } else {
+            wheel.get((int) (reservation.deadlineTick % wheel.size())).add(reservation);
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        jdbcTemplate.query("SELECT id, reserved_until FROM orders WHERE status = 'PENDING' AND reserved_until IS NOT NULL",
+                rs -> {
+                    Timestamp deadline = rs.getTimestamp(2);
+                    schedule(rs.getLong(1), deadline.getTime());
+                });
+        if (!outstanding.isEmpty()) {
+            log.info("Tracking {} outstanding stock reservations", outstanding.size());
+        }
+    }
+
+    /** Advances the wheel to the current tick and cancels everything that has lapsed. */
+    @Scheduled(fixedDelayString = "${app.orders.reservation.tick-ms:1000}")
+    public void advance() {
+        advanceTo(System.currentTimeMillis());
+    }
+
+    void advanceTo(long nowMillis) {
+        long now = nowMillis / tickMillis;
+        List<Reservation> expired = new ArrayList<>();
+        // after a long pause one pass over every slot covers all missed ticks
+        long from = Math.max(nextTick, now - wheel.size() + 1);
+        for (long tick = from; tick <= now; tick++) {
+            Iterator<Reservation> it = wheel.get((int) (tick % wheel.size())).iterator();
+            while (it.hasNext()) {
+                Reservation reservation = it.next();
+                if (reservation.cancelled) {
+                    it.remove();
+                } else if (reservation.deadlineTick <= now) {
+                    it.remove();
+                    expired.add(reservation);
+                }
+            }
+        }
+        nextTick = now + 1;
+        for (Reservation reservation; (reservation = overdue.poll()) != null; ) {
+            if (!reservation.cancelled) expired.add(reservation);
+        }
+
+        for (int start = 0; start < expired.size(); start += batchSize) {
+            List<Reservation> batch = expired.subList(start, Math.min(start + batchSize, expired.size()));
+            try {
+                int cancelled = expire(batch.stream().map(r -> r.orderId).toArray(Long[]::new));
+                batch.forEach(r -> outstanding.remove(r.orderId, r));
+                if (cancelled > 0) {
+                    log.info("Cancelled {} unpaid orders and released their stock", cancelled);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Reservation expiry batch failed, will retry: {}", e.getMessage());
+                overdue.addAll(batch);
+            }
+        }
+    }
+
+    /**
+     * Cancels the orders that are still PENDING (a concurrent payment wins) and returns their units:
+     * to product_variants for lines already subtracted there, and to the hot SKU ledger's counters.
+     */
+    int expire(Long[] orderIds) {
+        Integer cancelled = transactionTemplate.execute(status -> {
+            List<Long> ids = jdbcTemplate.query(CANCEL_SQL, arrays(orderIds), (rs, i) -> rs.getLong(1));
+            if (ids.isEmpty()) return 0;
+            Long[] cancelledIds = ids.toArray(Long[]::new);
+            // settle unflushed lines first: a flush committing in between is then seen by the restore
+            List<Long> settled = jdbcTemplate.query(SETTLE_UNFLUSHED_SQL, arrays(cancelledIds), (rs, i) -> rs.getLong(1));
+            // only after settling: locking variant rows first could deadlock with that flush
+            jdbcTemplate.query(LOCK_VARIANTS_SQL, arrays(cancelledIds), (rs, i) -> rs.getLong(1));
+            List<Long> productIds = jdbcTemplate.query(RESTORE_STOCK_SQL,
+                    arrays(cancelledIds, settled.toArray(Long[]::new)), (rs, i) -> rs.getLong(1));
+            jdbcTemplate.query(RELEASED_UNITS_SQL, arrays(cancelledIds),
+                    rs -> {
+                        hotSkuLedger.adjustAfterCommit(rs.getString(1), rs.getInt(2));
+                    });
+            if (!productIds.isEmpty()) {
+                eventPublisher.publishEvent(CatalogChangedEvent.of(new HashSet<>(productIds)));
+            }
+            return ids.size();
+        });
+        return cancelled != null ? cancelled : 0;
+    }
+
+    private static PreparedStatementSetter arrays(Long[]... values) {
+        return ps -> {
+            for (int i = 0; i < values.length; i++) {
+                ps.setArray(i + 1, ps.getConnection().createArrayOf("bigint", values[i]));
+            }
+        };
+    }
+}
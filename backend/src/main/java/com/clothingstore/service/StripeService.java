@@ -11,13 +11,18 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 @Service
 @RequiredArgsConstructor
 public class StripeService {
 
+    private static final long MIN_CHECKOUT_SECONDS = 31 * 60;
+
     @Value("${stripe.secret.key}")
     private String stripeSecretKey;
 
@@ -25,7 +30,7 @@ public class StripeService {
 
     public Order getOrderById(Long id) {
         return orderRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Order not found: " + id));
+                .orElseThrow(() -> new NoSuchElementException("Order not found: " + id));
     }
 
     @PostConstruct
@@ -33,6 +38,17 @@ public class StripeService {
         Stripe.apiKey = stripeSecretKey;
     }
 
+    /**
+     * Closes the Checkout Session a minute before the stock reservation lapses, so a payment cannot
+     * land on an order that expiry has cancelled. Null (Stripe's 24h default) if that would be sooner
+     * than the 30 minutes Stripe requires.
+     */
+    private static Long checkoutExpiry(Order order) {
+        if (order.getReservedUntil() == null) return null;
+        long expiresAt = order.getReservedUntil().atZone(ZoneId.systemDefault()).toEpochSecond() - 60;
+        return expiresAt >= Instant.now().getEpochSecond() + MIN_CHECKOUT_SECONDS ? expiresAt : null;
+    }
+
     /**
      * Creates a Stripe Checkout Session for the given order.
      * The orderId is stored in session metadata for retrieval in the webhook.
@@ -75,6 +91,7 @@ public class StripeService {
                 .setCancelUrl("http://localhost:5173/checkout/cancel")
                 .addAllLineItem(lineItems)
                 .putMetadata("order_id", orderId.toString())
+                .setExpiresAt(checkoutExpiry(order))
                 .build();
 
         com.stripe.model.checkout.Session session = com.stripe.model.checkout.Session.create(params);
@@ -0,0 +1,130 @@
+package com.clothingstore.service;
+
+import com.clothingstore.repository.OrderRepository;
+import com.clothingstore.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Deletes upload files that no product (image, additional images, derivatives) or order line refers
+ * to. Files younger than the grace period are kept, since an upload is stored before the product
+ * that uses it is saved. Deletion runs in batches so a large backlog is spread over several runs.
+ */
+@Slf4j
+@Service
+public class UploadGarbageCollector {
+
+    private static final String UPLOADS_SEGMENT = "/uploads/";
+
+    private final UploadStorage uploadStorage;
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final boolean enabled;
+    private final Duration gracePeriod;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    public UploadGarbageCollector(UploadStorage uploadStorage,
+                                  ProductRepository productRepository,
+                                  OrderRepository orderRepository,
+                                  @Value("${app.uploads.gc.enabled:true}") boolean enabled,
+                                  @Value("${app.uploads.gc.grace-hours:24}") long graceHours,
+                                  @Value("${app.uploads.gc.batch-size:200}") int batchSize,
+                                  @Value("${app.uploads.gc.max-batches-per-run:10}") int maxBatchesPerRun) {
+        this.uploadStorage = uploadStorage;
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+        this.enabled = enabled;
+        this.gracePeriod = Duration.ofHours(graceHours);
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    @Scheduled(initialDelayString = "${app.uploads.gc.initial-delay-ms:600000}",
+            fixedDelayString = "${app.uploads.gc.interval-ms:3600000}")
+    public void collect() {
+        if (!enabled || !Files.isDirectory(uploadStorage.getDirectory())) return;
+        try {
+            int deleted = collect(referencedFilenames(), System.currentTimeMillis() - gracePeriod.toMillis());
+            if (deleted > 0) {
+                log.info("Upload GC removed {} unreferenced files", deleted);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Upload GC failed: {}", e.getMessage());
+        }
+    }
+
+    /** Names in the uploads directory that are still in use, including derivatives of used images. */
+    Set<String> referencedFilenames() {
+        Set<String> referenced = new HashSet<>();
+        for (Object[] row : productRepository.findAllImageReferences()) {
+            for (Object column : row) {
+                if (column == null) continue;
+                for (String url : column.toString().split(",")) {
+                    addReference(referenced, url);
+                }
+            }
+        }
+        orderRepository.findDistinctUploadImageUrls().forEach(url -> addReference(referenced, url));
+        return referenced;
+    }
+
+    private static void addReference(Set<String> referenced, String url) {
+        int at = url.lastIndexOf(UPLOADS_SEGMENT);
+        if (at < 0) return;
+        String filename = url.substring(at + UPLOADS_SEGMENT.length()).trim();
+        int query = filename.indexOf('?');
+        if (query >= 0) filename = filename.substring(0, query);
+        if (filename.isEmpty()) return;
+        referenced.add(filename);
+        referenced.addAll(ImageDerivativeService.derivativeFilenames(filename));
+    }
+
+    private int collect(Set<String> referenced, long cutoffMillis) throws IOException {
+        int deleted = 0;
+        int batches = 0;
+        List<Path> batch = new ArrayList<>(batchSize);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(uploadStorage.getDirectory())) {
+            for (Path file : files) {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                if (!attrs.isRegularFile() || attrs.lastModifiedTime().toMillis() > cutoffMillis) continue;
+                // abandoned temp files from interrupted uploads or resize jobs are never referenced
+                if (referenced.contains(file.getFileName().toString())) continue;
+                batch.add(file);
+                if (batch.size() == batchSize) {
+                    deleted += delete(batch);
+                    if (++batches == maxBatchesPerRun) return deleted;
+                }
+            }
+        }
+        return deleted + delete(batch);
+    }
+
+    private int delete(List<Path> batch) {
+        int deleted = 0;
+        for (Path file : batch) {
+            String name = file.getFileName().toString();
+            uploadStorage.evict(name);
+            try {
+                if (Files.deleteIfExists(file)) deleted++;
+            } catch (IOException e) {
+                log.warn("Upload GC could not delete {}: {}", name, e.getMessage());
+            }
+        }
+        batch.clear();
+        return deleted;
+    }
+}
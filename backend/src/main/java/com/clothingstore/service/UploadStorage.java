@@ -0,0 +1,191 @@
+package com.clothingstore.service;
+
+import com.clothingstore.util.ImageSniffer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The uploads directory, plus a bounded LRU of file sizes for serving it. Uploads are
+ * content-addressed (SHA-256 of the bytes), so identical files are stored once and a file is never
+ * modified in place: a cached entry stays valid until the file is removed through {@link #evict}.
+ * No file handles are cached, since the sendfile path hands Tomcat a path and it opens the file itself.
+ */
+@Service
+public class UploadStorage {
+
+    private static final Pattern SAFE_FILENAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,254}");
+    static final String TEMP_PREFIX = ".upload-";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<String, FileInfo> fileInfos;
+
+    public UploadStorage(@Value("${app.uploads.dir:uploads}") String directory,
+                         @Value("${app.uploads.stat-cache-size:1024}") int maxCachedFiles,
+                         @Value("${app.uploads.max-bytes:15728640}") long maxBytes) {
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        this.fileInfos = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FileInfo> eldest) {
+                return size() > maxCachedFiles;
+            }
+        };
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public record StoredUpload(String filename, Path path, boolean deduplicated) {
+    }
+
+    /**
+     * Streams {@code content} to a temp file in the uploads directory through one fixed-size buffer,
+     * hashing as it goes, then renames it to its SHA-256. The leading bytes must identify an image of
+     * the declared type and the total must stay within the byte limit; either failure stops reading
+     * immediately. If the same content is already stored the temp file is dropped and the existing
+     * file is returned (its mtime is refreshed so the orphan collector's grace period covers it).
+     *
+     * @throws IllegalArgumentException        if the bytes are not an image of the declared type
+     * @throws MaxUploadSizeExceededException if the content exceeds {@code app.uploads.max-bytes}
+     */
+    public StoredUpload store(InputStream content, String declaredExtension) throws IOException {
+        Files.createDirectories(directory);
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        Path tmp = Files.createTempFile(directory, TEMP_PREFIX, ".tmp");
+        try {
+            String ext;
+            try (ReadableByteChannel in = Channels.newChannel(content);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                while (buffer.position() < ImageSniffer.HEADER_LENGTH && in.read(buffer) >= 0) {
+                    // fill enough of the first buffer to sniff the format
+                }
+                ext = ImageSniffer.detectExtension(buffer.array(), buffer.position());
+                String declared = ".jpeg".equals(declaredExtension) ? ".jpg" : declaredExtension;
+                if (ext == null || !ext.equals(declared)) {
+                    throw new IllegalArgumentException("Content is not a " + declaredExtension + " image");
+                }
+                long total = 0;
+                do {
+                    total += buffer.position();
+                    if (total > maxBytes) {
+                        throw new MaxUploadSizeExceededException(maxBytes);
+                    }
+                    sha256.update(buffer.array(), 0, buffer.position());
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                } while (in.read(buffer) >= 0);
+            }
+
+            String filename = HexFormat.of().formatHex(sha256.digest()) + ext;
+            Path target = directory.resolve(filename);
+            if (Files.exists(target)) {
+                Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+                return new StoredUpload(filename, target, true);
+            }
+            // a concurrent upload of the same bytes may win the rename; the content is identical either way
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return new StoredUpload(filename, target, false);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** Resolves a bare filename inside the uploads directory, or null if it is not a safe name. */
+    public Path resolve(String filename) {
+        if (filename == null || !SAFE_FILENAME.matcher(filename).matches() || filename.contains("..")) {
+            return null;
+        }
+        return directory.resolve(filename);
+    }
+
+    /**
+     * Returns the size of an uploaded file, or null if there is no such file. Served
+     * files are stat'ed once and then answered from a bounded LRU until {@link #evict}.
+     */
+    public FileInfo stat(String filename) throws IOException {
+        Path path = resolve(filename);
+        if (path == null) return null;
+        synchronized (fileInfos) {
+            FileInfo cached = fileInfos.get(filename);
+            if (cached != null) return cached;
+        }
+        FileInfo info;
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attrs.isRegularFile()) return null;
+            info = new FileInfo(path, attrs.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        synchronized (fileInfos) {
+            fileInfos.put(filename, info);
+        }
+        return info;
+    }
+
+    /** Drops a file from the stat cache, e.g. before deleting it. */
+    public void evict(String filename) {
+        synchronized (fileInfos) {
+            fileInfos.remove(filename);
+        }
+    }
+
+    public record FileInfo(Path path, long size) {
+
+        /**
+         * Copies {@code [start, start + count)} to {@code out} with {@link FileChannel#transferTo}, for
+         * connectors without sendfile.
+         */
+        public void transferTo(long start, long count, OutputStream out) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = start;
+                long end = start + count;
+                while (position < end) {
+                    long sent = channel.transferTo(position, end - position, target);
+                    if (sent <= 0) break;
+                    position += sent;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.clothingstore.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes RFC 4180 CSV rows. Text cells that a spreadsheet would evaluate as a formula
+ * (leading =, +, -, @) are prefixed with a single quote; readers that re-import the file
+ * undo that with {@link #stripFormulaGuard}.
+ */
+public final class CsvWriter {
+
+    private static final String FORMULA_START = "=+-@";
+
+    private final Writer out;
+
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void writeRow(List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) out.write(',');
+            Object value = values.get(i);
+            if (value == null) continue;
+            if (value instanceof Number || value instanceof Boolean) {
+                out.write(value.toString());
+            } else {
+                writeText(value.toString());
+            }
+        }
+        out.write("\r\n");
+    }
+
+    /**
+     * Reverses the quote prefix added to formula-like cells, so exported values round-trip.
+     */
+    public static String stripFormulaGuard(String s) {
+        if (s != null && s.length() > 1 && s.charAt(0) == '\'' && isFormulaStart(s.charAt(1))) {
+            return s.substring(1);
+        }
+        return s;
+    }
+
+    private static boolean isFormulaStart(char c) {
+        return FORMULA_START.indexOf(c) >= 0;
+    }
+
+    private void writeText(String s) throws IOException {
+        if (!s.isEmpty() && isFormulaStart(s.charAt(0))) {
+            s = "'" + s;
+        }
+        boolean quote = s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0;
+        if (!quote) {
+            out.write(s);
+            return;
+        }
+        out.write('"');
+        out.write(s.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
@@ -0,0 +1,60 @@
+package com.clothingstore.util;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads the EXIF orientation tag (0x0112) from a JPEG stream. ImageIO ignores it, so phone photos
+ * would otherwise come out rotated. Only the markers before the image data are read.
+ */
+public final class ExifOrientation {
+
+    public static final int NORMAL = 1;
+
+    private static final int TAG_ORIENTATION = 0x0112;
+
+    private ExifOrientation() {
+    }
+
+    /** Returns the orientation (1-8), or {@link #NORMAL} if the stream is not a JPEG or has no tag. */
+    public static int read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readUnsignedShort() != 0xFFD8) return NORMAL;
+        while (true) {
+            int marker = in.readUnsignedShort();
+            if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA || marker == 0xFFD9) return NORMAL;
+            int length = in.readUnsignedShort() - 2;
+            if (length < 0) return NORMAL;
+            if (marker != 0xFFE1) {
+                in.skipNBytes(length);
+                continue;
+            }
+            byte[] segment = in.readNBytes(length);
+            if (segment.length < 14 || segment[0] != 'E' || segment[1] != 'x' || segment[2] != 'i' || segment[3] != 'f') {
+                continue;
+            }
+            return fromTiff(ByteBuffer.wrap(segment, 6, segment.length - 6).slice());
+        }
+    }
+
+    private static int fromTiff(ByteBuffer tiff) {
+        try {
+            tiff.order(tiff.getShort(0) == 0x4949 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            int ifd = tiff.getInt(4);
+            int entries = tiff.getShort(ifd) & 0xFFFF;
+            for (int i = 0; i < entries; i++) {
+                int entry = ifd + 2 + i * 12;
+                if ((tiff.getShort(entry) & 0xFFFF) == TAG_ORIENTATION) {
+                    int value = tiff.getShort(entry + 8) & 0xFFFF;
+                    return value >= 1 && value <= 8 ? value : NORMAL;
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // truncated or malformed EXIF block
+        }
+        return NORMAL;
+    }
+}
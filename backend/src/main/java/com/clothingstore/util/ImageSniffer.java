@@ -0,0 +1,47 @@
+package com.clothingstore.util;
+
+/**
+ * Identifies an image format from its leading bytes, so an upload's content can be checked against its
+ * declared type before the rest of it is read.
+ */
+public final class ImageSniffer {
+
+    /** Enough leading bytes for every format checked here. */
+    public static final int HEADER_LENGTH = 12;
+
+    private ImageSniffer() {
+    }
+
+    /** Returns the canonical extension (".jpg", ".png", ".gif", ".webp") or null if not a supported image. */
+    public static String detectExtension(byte[] head, int length) {
+        if (length >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+            return ".jpg";
+        }
+        if (length >= 8 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G'
+                && head[4] == 0x0D && head[5] == 0x0A && head[6] == 0x1A && head[7] == 0x0A) {
+            return ".png";
+        }
+        if (length >= 6 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F' && head[3] == '8'
+                && (head[4] == '7' || head[4] == '9') && head[5] == 'a') {
+            return ".gif";
+        }
+        if (length >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return ".webp";
+        }
+        return null;
+    }
+
+    /** Maps an image content type to the canonical extension, or null if it is not accepted. */
+    public static String extensionForContentType(String contentType) {
+        if (contentType == null) return null;
+        String type = contentType.split(";", 2)[0].trim().toLowerCase();
+        return switch (type) {
+            case "image/jpeg", "image/jpg" -> ".jpg";
+            case "image/png" -> ".png";
+            case "image/gif" -> ".gif";
+            case "image/webp" -> ".webp";
+            default -> null;
+        };
+    }
+}
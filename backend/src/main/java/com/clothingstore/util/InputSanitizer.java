@@ -12,6 +12,8 @@ public final class InputSanitizer {
     private static final Pattern CONTROL_CHARS = Pattern.compile("[\\x00-\\x1F\\x7F]");
     private static final Pattern HTML_SCRIPT = Pattern.compile("<script[^>]*>.*?</script>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
     private static final Pattern HTML_TAGS = Pattern.compile("<[^>]+>");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MAX_QUERY_TERMS = 8;
     private static final Set<String> ALLOWED_IMAGE_EXTENSIONS = Set.of(".jpg", ".jpeg", ".png", ".gif", ".webp");
 
     private InputSanitizer() {
@@ -45,6 +47,24 @@ public final class InputSanitizer {
         return s.isEmpty() ? null : s;
     }
 
+    /**
+     * Builds a Postgres tsquery from free text: keeps only letters and digits, ANDs the terms and
+     * prefix-matches the last one (search-as-you-type). Returns null if no usable term remains.
+     */
+    public static String toPrefixTsQuery(String input, int maxLength) {
+        String s = sanitizeSearch(input, maxLength);
+        if (s == null) return null;
+        StringBuilder sb = new StringBuilder();
+        int terms = 0;
+        for (String term : NON_WORD.split(s.toLowerCase())) {
+            if (term.isEmpty()) continue;
+            if (terms++ == MAX_QUERY_TERMS) break;
+            if (sb.length() > 0) sb.append(" & ");
+            sb.append(term);
+        }
+        return sb.length() > 0 ? sb.append(":*").toString() : null;
+    }
+
     /**
      * Sanitizes URL: ensures it doesn't start with javascript:, data:, etc.
      */
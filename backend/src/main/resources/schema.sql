@@ -0,0 +1,60 @@
+-- Runs after Hibernate has created/updated the tables (spring.jpa.defer-datasource-initialization=true).
+-- Every statement must be idempotent: this script runs on each startup.
+
+-- Full-text search over name, category, color and description, kept current by Postgres itself.
+ALTER TABLE products ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(name, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(category, '')), 'B') ||
+        setweight(to_tsvector('english', coalesce(color, '')), 'B') ||
+        setweight(to_tsvector('english', coalesce(description, '')), 'C')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_products_search_vector ON products USING GIN (search_vector);
+
+-- Order lines still waiting for the hot SKU ledger's write-behind flush (normally a handful).
+CREATE INDEX IF NOT EXISTS idx_order_items_stock_pending ON order_items (id) WHERE stock_committed = false;
+
+-- Outstanding stock reservations, reloaded into the expiry timing wheel on startup.
+CREATE INDEX IF NOT EXISTS idx_orders_pending_reserved_until ON orders (reserved_until) WHERE status = 'PENDING';
+
+-- First response per Idempotency-Key (see IdempotencyService). response_status is NULL while the
+-- first request is still running; its owner renews claimed_at, and a claim left unrenewed past the
+-- lease is taken over by the next duplicate.
+CREATE TABLE IF NOT EXISTS idempotency_records (
+    scope           varchar(50)  NOT NULL,
+    idem_key        varchar(255) NOT NULL,
+    fingerprint     varchar(64)  NOT NULL,
+    response_status integer,
+    response_body   text,
+    created_at      timestamp    NOT NULL,
+    claimed_at      timestamp,
+    owner           varchar(36),
+    PRIMARY KEY (scope, idem_key)
+);
+ALTER TABLE idempotency_records ADD COLUMN IF NOT EXISTS claimed_at timestamp;
+ALTER TABLE idempotency_records ADD COLUMN IF NOT EXISTS owner varchar(36);
+CREATE INDEX IF NOT EXISTS idx_idempotency_records_created_at ON idempotency_records (created_at);
+
+-- Ids come from pooled-lo sequences (allocationSize 50), which Hibernate creates. Tables created
+-- before the switch still carry IDENTITY columns: drop that and move the sequence past every existing
+-- id and any block already handed out. There is deliberately no column default: each nextval hands out
+-- a block of 50, so hand-written inserts must reserve ids by block rather than take one per row.
+ALTER TABLE products ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE products ALTER COLUMN id DROP DEFAULT;
+SELECT setval('products_seq', GREATEST((SELECT COALESCE(MAX(id), 0) + 1 FROM products), (SELECT last_value + 50 FROM products_seq)), false);
+ALTER TABLE product_variants ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE product_variants ALTER COLUMN id DROP DEFAULT;
+SELECT setval('product_variants_seq', GREATEST((SELECT COALESCE(MAX(id), 0) + 1 FROM product_variants), (SELECT last_value + 50 FROM product_variants_seq)), false);
+ALTER TABLE orders ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE orders ALTER COLUMN id DROP DEFAULT;
+SELECT setval('orders_seq', GREATEST((SELECT COALESCE(MAX(id), 0) + 1 FROM orders), (SELECT last_value + 50 FROM orders_seq)), false);
+ALTER TABLE order_items ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE order_items ALTER COLUMN id DROP DEFAULT;
+SELECT setval('order_items_seq', GREATEST((SELECT COALESCE(MAX(id), 0) + 1 FROM order_items), (SELECT last_value + 50 FROM order_items_seq)), false);
+ALTER TABLE carts ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE carts ALTER COLUMN id DROP DEFAULT;
+SELECT setval('carts_seq', GREATEST((SELECT COALESCE(MAX(id), 0) + 1 FROM carts), (SELECT last_value + 50 FROM carts_seq)), false);
+ALTER TABLE cart_items ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE cart_items ALTER COLUMN id DROP DEFAULT;
+SELECT setval('cart_items_seq', GREATEST((SELECT COALESCE(MAX(id), 0) + 1 FROM cart_items), (SELECT last_value + 50 FROM cart_items_seq)), false);
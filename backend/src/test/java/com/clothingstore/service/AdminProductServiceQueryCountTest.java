@@ -0,0 +1,87 @@
+package com.clothingstore.service;
+
+import com.clothingstore.dto.ProductListItemDTO;
+import com.clothingstore.entity.Product;
+import com.clothingstore.entity.ProductVariant;
+import com.clothingstore.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class AdminProductServiceQueryCountTest {
+
+    private static final String CATEGORY = "QueryCountTest";
+    private static final List<String> SIZES = List.of("S", "M", "L");
+
+    @Autowired
+    private AdminProductService adminProductService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seedProducts() {
+        for (int i = 0; i < 100; i++) {
+            Product product = new Product();
+            product.setName(String.format("Query Count Product %03d", i));
+            product.setPrice(10.0 + i);
+            product.setCategory(CATEGORY);
+            for (String size : SIZES) {
+                ProductVariant variant = new ProductVariant();
+                variant.setProduct(product);
+                variant.setSize(size);
+                variant.setStock(5);
+                variant.setSku("qct-" + i + "-" + size);
+                product.getVariants().add(variant);
+            }
+            productRepository.save(product);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void categoryPageOfHundredProductsUsesConstantQueries() {
+        Page<ProductListItemDTO> page = adminProductService.getAllProducts(CATEGORY, null, PageRequest.of(0, 100));
+
+        assertThat(page.getContent()).hasSize(100);
+        assertThat(page.getContent()).allSatisfy(p -> assertThat(p.getVariants()).hasSize(SIZES.size()));
+        // page query + count query + variants query
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void cursorPageOfHundredProductsUsesConstantQueries() {
+        var page = adminProductService.getProductsAfterCursor(CATEGORY, null, null, 100, true);
+
+        assertThat(page.getContent()).hasSize(100);
+        assertThat(page.getContent()).allSatisfy(p -> assertThat(p.getVariants()).hasSize(SIZES.size()));
+        // page query + variants query + count query
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+    }
+}
@@ -0,0 +1,182 @@
+package com.clothingstore.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The in-memory side of the ledger: striped counters under contention, and units handed back when
+ * the order's transaction or savepoint rolls back. No database; the counters are loaded directly.
+ */
+class HotSkuLedgerTest {
+
+    private static final String HOT = "hot-1";
+    private static final String OTHER = "hot-2";
+
+    private HotSkuLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        ledger = new HotSkuLedger(null, event -> { }, Set.of(HOT, OTHER), 4, 100);
+        Map<String, Integer> stock = new LinkedHashMap<>();
+        stock.put(HOT, 10);
+        stock.put(OTHER, 2);
+        ledger.load(stock);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void concurrentTakesNeverOversell() throws Exception {
+        HotSkuLedger.StripedStock stock = new HotSkuLedger.StripedStock(8, 1000);
+        int threads = 16;
+        int attemptsPerThread = 200;
+        AtomicInteger taken = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                int qty = t % 3 + 1;
+                pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        if (stock.tryTake(qty)) taken.addAndGet(qty);
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(taken.get()).isLessThanOrEqualTo(1000);
+        assertThat(stock.sum()).isEqualTo(1000 - taken.get()).isGreaterThanOrEqualTo(0);
+        // what is left is below the largest quantity asked for, so nothing more could be sold
+        assertThat(stock.sum()).isLessThan(3);
+    }
+
+    @Test
+    void concurrentTakesAndGiveBacksBalance() throws Exception {
+        HotSkuLedger.StripedStock stock = new HotSkuLedger.StripedStock(4, 100);
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 5000; i++) {
+                        if (stock.tryTake(7)) stock.add(7);
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            pool.shutdown();
+            assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(stock.sum()).isEqualTo(100);
+    }
+
+    @Test
+    void takeGathersAcrossCellsAndRestoresOnShortfall() {
+        HotSkuLedger.StripedStock stock = new HotSkuLedger.StripedStock(4, 10);
+        // 3 + 3 + 2 + 2: no single cell holds 9
+        assertThat(stock.tryTake(9)).isTrue();
+        assertThat(stock.sum()).isEqualTo(1);
+        assertThat(stock.tryTake(2)).isFalse();
+        assertThat(stock.sum()).isEqualTo(1);
+    }
+
+    @Test
+    void failedReserveReturnsUnitsTakenForEarlierSkus() {
+        Map<String, Integer> order = new LinkedHashMap<>();
+        order.put(HOT, 4);
+        order.put(OTHER, 3);
+        assertThatThrownBy(() -> ledger.reserve(order)).isInstanceOf(InsufficientStockException.class);
+        assertThat(available(HOT)).isEqualTo(10);
+        assertThat(available(OTHER)).isEqualTo(2);
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).isEmpty();
+    }
+
+    @Test
+    void rollbackToSavepointTakenBeforeReserveReturnsUnitsOnce() {
+        Object orderSavepoint = new Object();
+        ledger.reserve(Map.of(HOT, 4));
+        TransactionSynchronization sync = onlySynchronization();
+        assertThat(available(HOT)).isEqualTo(6);
+
+        sync.savepointRollback(orderSavepoint);
+        assertThat(available(HOT)).isEqualTo(10);
+
+        // the batch transaction then commits, or rolls back: neither returns the units a second time
+        sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(available(HOT)).isEqualTo(10);
+    }
+
+    @Test
+    void rollbackToSavepointTakenAfterReserveKeepsUnits() {
+        ledger.reserve(Map.of(HOT, 4));
+        TransactionSynchronization sync = onlySynchronization();
+        Object nested = new Object();
+
+        sync.savepoint(nested);
+        sync.savepointRollback(nested);
+        sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        assertThat(available(HOT)).isEqualTo(6);
+    }
+
+    @Test
+    void transactionRollbackReturnsUnits() {
+        ledger.reserve(Map.of(HOT, 4, OTHER, 2));
+        onlySynchronization().afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(available(HOT)).isEqualTo(10);
+        assertThat(available(OTHER)).isEqualTo(2);
+    }
+
+    @Test
+    void unknownOutcomeKeepsUnits() {
+        ledger.reserve(Map.of(HOT, 4));
+        onlySynchronization().afterCompletion(TransactionSynchronization.STATUS_UNKNOWN);
+        assertThat(available(HOT)).isEqualTo(6);
+    }
+
+    private TransactionSynchronization onlySynchronization() {
+        List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+        assertThat(syncs).hasSize(1);
+        return syncs.get(0);
+    }
+
+    /** Units left: a request for more than can exist fails and reports the count, taking nothing. */
+    private int available(String sku) {
+        try {
+            ledger.reserve(Map.of(sku, Integer.MAX_VALUE));
+        } catch (InsufficientStockException e) {
+            return e.getAvailable();
+        }
+        throw new AssertionError("reserve of Integer.MAX_VALUE units succeeded");
+    }
+}
@@ -0,0 +1,124 @@
+package com.clothingstore.service;
+
+import com.clothingstore.dto.CreateOrderRequest;
+import com.clothingstore.entity.Order;
+import com.clothingstore.entity.Product;
+import com.clothingstore.entity.ProductVariant;
+import com.clothingstore.repository.OrderRepository;
+import com.clothingstore.repository.ProductRepository;
+import com.clothingstore.repository.ProductVariantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hundreds of buyers race for a few units of two SKUs. Not transactional: every order has to commit
+ * on its own connection for the race to be real.
+ */
+@SpringBootTest
+class InventoryConcurrencyTest {
+
+    private static final int STOCK = 50;
+    private static final int BUYERS = 300;
+    private static final String SKU_A = "ict-a";
+    private static final String SKU_B = "ict-b";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Long productId;
+    private final ConcurrentLinkedQueue<Long> orderIds = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    void seed() {
+        Product product = new Product();
+        product.setName("Inventory Concurrency Product");
+        product.setPrice(20.0);
+        product.setCategory("InventoryConcurrencyTest");
+        for (String sku : List.of(SKU_A, SKU_B)) {
+            ProductVariant variant = new ProductVariant();
+            variant.setProduct(product);
+            variant.setSize(sku.endsWith("a") ? "S" : "M");
+            variant.setStock(STOCK);
+            variant.setSku(sku);
+            product.getVariants().add(variant);
+        }
+        productId = productRepository.save(product).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        orderRepository.deleteAllById(orderIds);
+        productRepository.deleteById(productId);
+    }
+
+    @Test
+    void parallelBuyersNeverOversell() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            // half the buyers list the SKUs in reverse order; deterministic locking must avoid deadlocks
+            List<String> skus = i % 2 == 0 ? List.of(SKU_A, SKU_B) : List.of(SKU_B, SKU_A);
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    Order order = orderService.createOrder(request(skus));
+                    orderIds.add(order.getId());
+                } catch (RuntimeException e) {
+                    assertThat(e.getMessage()).startsWith("Insufficient stock");
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertThat(orderIds).hasSize(STOCK);
+        assertThat(rejected.get()).isEqualTo(BUYERS - STOCK);
+        assertThat(productVariantRepository.findStockBySku(SKU_A)).contains(0);
+        assertThat(productVariantRepository.findStockBySku(SKU_B)).contains(0);
+    }
+
+    private static CreateOrderRequest request(List<String> skus) {
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setGuestEmail("buyer@example.com");
+        List<CreateOrderRequest.OrderItemRequest> items = new ArrayList<>();
+        for (String sku : skus) {
+            CreateOrderRequest.OrderItemRequest item = new CreateOrderRequest.OrderItemRequest();
+            item.setSku(sku);
+            item.setQuantity(1);
+            items.add(item);
+        }
+        request.setItems(items);
+        return request;
+    }
+}
@@ -0,0 +1,152 @@
+package com.clothingstore.service;
+
+import com.clothingstore.dto.CreateOrderRequest;
+import com.clothingstore.entity.Order;
+import com.clothingstore.entity.Product;
+import com.clothingstore.entity.ProductVariant;
+import com.clothingstore.repository.OrderRepository;
+import com.clothingstore.repository.ProductRepository;
+import com.clothingstore.repository.ProductVariantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One group-commit batch with failing orders in it: savepoints must keep a failed order from
+ * touching the others, and a batch whose flush fails must fall back to one transaction per order.
+ */
+@SpringBootTest
+class OrderIngestServiceTest {
+
+    private static final int STOCK = 10;
+    private static final String SKU_A = "oist-a";
+    private static final String SKU_B = "oist-b";
+    private static final String EMAIL = "ingest@example.com";
+
+    @Autowired
+    private OrderIngestService orderIngestService;
+
+    @Autowired
+    private ReservationExpiryService reservationExpiryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long productId;
+
+    @BeforeEach
+    void seed() {
+        Product product = new Product();
+        product.setName("Order Ingest Product");
+        product.setPrice(12.0);
+        product.setCategory("OrderIngestServiceTest");
+        for (String sku : List.of(SKU_A, SKU_B)) {
+            ProductVariant variant = new ProductVariant();
+            variant.setProduct(product);
+            variant.setSize(sku.equals(SKU_A) ? "S" : "M");
+            variant.setStock(STOCK);
+            variant.setSku(sku);
+            product.getVariants().add(variant);
+        }
+        productId = productRepository.save(product).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        List<Long> ids = orderIds();
+        ids.forEach(reservationExpiryService::cancel);
+        orderRepository.deleteAllById(ids);
+        productRepository.deleteById(productId);
+    }
+
+    @Test
+    void failedOrderInABatchDoesNotAffectTheOthers() {
+        List<OrderIngestService.PendingOrder> batch = List.of(
+                pending(line(SKU_A, 1)),
+                // takes A, then fails on B: the savepoint must give A back
+                pending(line(SKU_A, 2), line(SKU_B, STOCK + 1)),
+                pending(line("oist-unknown", 1)),
+                pending(line(SKU_B, 2)));
+
+        orderIngestService.placeBatch(batch);
+
+        assertThat(batch.get(0).result()).isCompletedWithValueMatching(o -> o.getId() != null);
+        assertThat(batch.get(1).result()).isCompletedExceptionally();
+        assertThat(batch.get(2).result()).isCompletedExceptionally();
+        assertThat(batch.get(3).result()).isCompletedWithValueMatching(o -> o.getId() != null);
+        assertThat(stock(SKU_A)).isEqualTo(STOCK - 1);
+        assertThat(stock(SKU_B)).isEqualTo(STOCK - 2);
+        assertThat(orderIds()).containsExactlyInAnyOrder(
+                batch.get(0).result().join().getId(), batch.get(3).result().join().getId());
+        assertThat(lineCount()).isEqualTo(2);
+    }
+
+    @Test
+    void batchWhoseFlushFailsIsRetriedOneOrderAtATime() {
+        CreateOrderRequest.OrderItemRequest tooLongSize = line(SKU_B, 1);
+        // passes validation and stock, but the insert violates the column length at flush
+        tooLongSize.setSize("X".repeat(40));
+        List<OrderIngestService.PendingOrder> batch = List.of(
+                pending(line(SKU_A, 1)),
+                pending(tooLongSize),
+                pending(line(SKU_A, 1), line(SKU_B, 1)));
+
+        orderIngestService.placeBatch(batch);
+
+        assertThat(batch.get(0).result()).isCompletedWithValueMatching(o -> o.getId() != null);
+        assertThat(batch.get(1).result()).isCompletedExceptionally();
+        assertThat(batch.get(2).result()).isCompletedWithValueMatching(o -> o.getId() != null);
+        // the failed batch wrote nothing; each retry committed (or rolled back) on its own
+        assertThat(stock(SKU_A)).isEqualTo(STOCK - 2);
+        assertThat(stock(SKU_B)).isEqualTo(STOCK - 1);
+        assertThat(orderIds()).hasSize(2);
+        assertThat(lineCount()).isEqualTo(3);
+    }
+
+    private static OrderIngestService.PendingOrder pending(CreateOrderRequest.OrderItemRequest... lines) {
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setGuestEmail(EMAIL);
+        request.setItems(new ArrayList<>(List.of(lines)));
+        return new OrderIngestService.PendingOrder(request, new CompletableFuture<Order>());
+    }
+
+    private static CreateOrderRequest.OrderItemRequest line(String sku, int quantity) {
+        CreateOrderRequest.OrderItemRequest item = new CreateOrderRequest.OrderItemRequest();
+        item.setSku(sku);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private int stock(String sku) {
+        return productVariantRepository.findStockBySku(sku).orElseThrow();
+    }
+
+    private List<Long> orderIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM orders WHERE guest_email = ?", Long.class, EMAIL);
+    }
+
+    private int lineCount() {
+        Integer lines = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM order_items i JOIN orders o ON o.id = i.order_id WHERE o.guest_email = ?",
+                Integer.class, EMAIL);
+        return lines != null ? lines : 0;
+    }
+}
@@ -0,0 +1,120 @@
+package com.clothingstore.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Timing wheel bookkeeping with an explicit clock. {@code expire} is stubbed to record the ids it
+ * is given, so no database is involved.
+ */
+class ReservationExpiryServiceTest {
+
+    private static final long TICK_MS = 1000;
+    private static final int SLOTS = 8;
+
+    private final List<Long> expired = new ArrayList<>();
+    private boolean failNextExpire;
+    private ReservationExpiryService service;
+    private long base;
+
+    @BeforeEach
+    void setUp() {
+        service = new ReservationExpiryService(null, null, null, null, 60, TICK_MS, SLOTS, 500) {
+            @Override
+            int expire(Long[] orderIds) {
+                if (failNextExpire) {
+                    failNextExpire = false;
+                    throw new IllegalStateException("database unavailable");
+                }
+                expired.addAll(List.of(orderIds));
+                return orderIds.length;
+            }
+        };
+        base = System.currentTimeMillis() / TICK_MS;
+        service.advanceTo(at(0));
+    }
+
+    @Test
+    void expiresInTheTickOfTheDeadlineNotBefore() {
+        service.schedule(1, at(3) - 1);
+        service.advanceTo(at(2));
+        assertThat(expired).isEmpty();
+        service.advanceTo(at(3));
+        assertThat(expired).containsExactly(1L);
+        assertThat(service.getOutstandingCount()).isZero();
+    }
+
+    @Test
+    void deadlineOneRotationAheadStaysInItsSlot() {
+        service.schedule(1, at(3));
+        service.schedule(2, at(3 + SLOTS));
+        for (int tick = 1; tick < 3 + SLOTS; tick++) {
+            service.advanceTo(at(tick));
+        }
+        assertThat(expired).containsExactly(1L);
+        service.advanceTo(at(3 + SLOTS));
+        assertThat(expired).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void deadlineInAnAlreadyPassedSlotExpiresOnTheNextAdvance() {
+        service.advanceTo(at(5));
+        service.schedule(1, at(2));
+        service.schedule(2, at(5));
+        assertThat(expired).isEmpty();
+        service.advanceTo(at(5));
+        assertThat(expired).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void cancelledReservationNeverExpires() {
+        service.schedule(1, at(2));
+        service.advanceTo(at(4));
+        service.cancel(1L);
+        service.schedule(2, at(6));
+        service.cancel(2L);
+        assertThat(service.getOutstandingCount()).isZero();
+        service.advanceTo(at(10));
+        assertThat(expired).containsExactly(1L);
+    }
+
+    @Test
+    void reschedulingReplacesTheEarlierDeadline() {
+        service.schedule(1, at(2));
+        service.schedule(1, at(4));
+        service.advanceTo(at(3));
+        assertThat(expired).isEmpty();
+        service.advanceTo(at(4));
+        assertThat(expired).containsExactly(1L);
+    }
+
+    @Test
+    void pauseLongerThanOneRotationStillExpiresEverything() {
+        service.schedule(1, at(2));
+        service.schedule(2, at(2 + SLOTS * 3));
+        service.advanceTo(at(SLOTS * 10));
+        assertThat(expired).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void failedBatchIsRetriedOnTheNextAdvance() {
+        service.schedule(1, at(2));
+        failNextExpire = true;
+        service.advanceTo(at(2));
+        assertThat(expired).isEmpty();
+        assertThat(service.getOutstandingCount()).isEqualTo(1);
+        service.advanceTo(at(3));
+        assertThat(expired).containsExactly(1L);
+        assertThat(service.getOutstandingCount()).isZero();
+    }
+
+    /** Start of the tick {@code ticks} after the one the test started in. */
+    private long at(long ticks) {
+        return (base + ticks) * TICK_MS;
+    }
+}
@@ -0,0 +1,171 @@
+package com.clothingstore.service;
+
+import com.clothingstore.dto.CreateOrderRequest;
+import com.clothingstore.entity.Product;
+import com.clothingstore.entity.ProductVariant;
+import com.clothingstore.repository.OrderRepository;
+import com.clothingstore.repository.ProductRepository;
+import com.clothingstore.repository.ProductVariantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Expiry against the database: a cancelled order's units go back to stock exactly once, whether its
+ * line was already subtracted from product_variants or was still waiting for the hot SKU flush, and
+ * also when that flush holds the line while the order expires. Not transactional, like the code it tests.
+ */
+@SpringBootTest
+class ReservationExpiryStockTest {
+
+    private static final int STOCK = 10;
+    private static final String SKU_COMMITTED = "ret-committed";
+    private static final String SKU_UNFLUSHED = "ret-unflushed";
+
+    @Autowired
+    private ReservationExpiryService reservationExpiryService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long productId;
+    private final List<Long> orderIds = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        Product product = new Product();
+        product.setName("Reservation Expiry Product");
+        product.setPrice(15.0);
+        product.setCategory("ReservationExpiryStockTest");
+        for (String sku : List.of(SKU_COMMITTED, SKU_UNFLUSHED)) {
+            ProductVariant variant = new ProductVariant();
+            variant.setProduct(product);
+            variant.setSize(sku.equals(SKU_COMMITTED) ? "S" : "M");
+            variant.setStock(STOCK);
+            variant.setSku(sku);
+            product.getVariants().add(variant);
+        }
+        productId = productRepository.save(product).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        orderIds.forEach(reservationExpiryService::cancel);
+        orderRepository.deleteAllById(orderIds);
+        productRepository.deleteById(productId);
+    }
+
+    @Test
+    void expiryRestoresCommittedAndUnflushedLinesExactlyOnce() {
+        Long committed = placeOrder(SKU_COMMITTED, 3);
+        Long unflushed = placeUnflushedOrder(SKU_UNFLUSHED, 2);
+        assertThat(stock(SKU_COMMITTED)).isEqualTo(STOCK - 3);
+        assertThat(stock(SKU_UNFLUSHED)).isEqualTo(STOCK);
+
+        assertThat(reservationExpiryService.expire(new Long[]{committed, unflushed})).isEqualTo(2);
+        assertThat(stock(SKU_COMMITTED)).isEqualTo(STOCK);
+        assertThat(stock(SKU_UNFLUSHED)).isEqualTo(STOCK);
+        assertThat(status(committed)).isEqualTo("CANCELLED");
+        assertThat(status(unflushed)).isEqualTo("CANCELLED");
+
+        // a second expiry (e.g. a retried batch) finds nothing PENDING
+        assertThat(reservationExpiryService.expire(new Long[]{committed, unflushed})).isZero();
+        // and the flush has nothing left to subtract
+        flush();
+        assertThat(stock(SKU_COMMITTED)).isEqualTo(STOCK);
+        assertThat(stock(SKU_UNFLUSHED)).isEqualTo(STOCK);
+    }
+
+    @Test
+    void expiryWaitingOnAFlushRestoresWhatTheFlushSubtracted() throws Exception {
+        Long order = placeUnflushedOrder(SKU_UNFLUSHED, 2);
+        CountDownLatch flushed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            flush();
+            flushed.countDown();
+            await(release);
+        }));
+        assertThat(flushed.await(10, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Integer> expiry = CompletableFuture.supplyAsync(
+                () -> reservationExpiryService.expire(new Long[]{order}));
+        Thread.sleep(300);
+        // settling the line needs the row lock the uncommitted flush holds
+        assertThat(expiry).isNotDone();
+
+        release.countDown();
+        flush.get(10, TimeUnit.SECONDS);
+        assertThat(expiry.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(stock(SKU_UNFLUSHED)).isEqualTo(STOCK);
+    }
+
+    private Long placeOrder(String sku, int quantity) {
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setGuestEmail("buyer@example.com");
+        CreateOrderRequest.OrderItemRequest item = new CreateOrderRequest.OrderItemRequest();
+        item.setSku(sku);
+        item.setQuantity(quantity);
+        request.setItems(List.of(item));
+        Long id = orderService.createOrder(request).getId();
+        orderIds.add(id);
+        return id;
+    }
+
+    /** What a hot SKU checkout leaves behind: the line is saved, product_variants is not touched yet. */
+    private Long placeUnflushedOrder(String sku, int quantity) {
+        Long id = placeOrder(sku, quantity);
+        jdbcTemplate.update("UPDATE order_items SET stock_committed = false WHERE order_id = ?", id);
+        jdbcTemplate.update("UPDATE product_variants SET stock = stock + ? WHERE sku = ?", quantity, sku);
+        return id;
+    }
+
+    private void flush() {
+        jdbcTemplate.queryForMap(HotSkuLedger.FLUSH_SQL, 1000);
+    }
+
+    private int stock(String sku) {
+        return productVariantRepository.findStockBySku(sku).orElseThrow();
+    }
+
+    private String status(Long orderId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM orders WHERE id = ?", String.class, orderId);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
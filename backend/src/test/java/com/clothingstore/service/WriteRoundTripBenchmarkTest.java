@@ -0,0 +1,133 @@
+package com.clothingstore.service;
+
+import com.clothingstore.dto.CartItemRequest;
+import com.clothingstore.dto.CreateOrderRequest;
+import com.clothingstore.dto.UpdateCartRequest;
+import com.clothingstore.entity.Customer;
+import com.clothingstore.entity.Product;
+import com.clothingstore.entity.ProductVariant;
+import com.clothingstore.repository.CustomerRepository;
+import com.clothingstore.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statements (≈ round trips) to write a 15-line checkout and a 15-line cart. With pooled-lo sequences
+ * the lines go out as one JDBC batch after at most one nextval per table, so the bound does not grow
+ * with the number of lines.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class WriteRoundTripBenchmarkTest {
+
+    private static final int LINES = 15;
+    private static final String EMAIL = "round-trips@example.com";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Product> products = new ArrayList<>();
+    private Statistics statistics;
+
+    @BeforeEach
+    void seed() {
+        for (int i = 0; i < LINES; i++) {
+            Product product = new Product();
+            product.setName(String.format("Round Trip Product %02d", i));
+            product.setPrice(15.0 + i);
+            product.setCategory("RoundTripBenchmark");
+            ProductVariant variant = new ProductVariant();
+            variant.setProduct(product);
+            variant.setSize("M");
+            variant.setStock(10);
+            variant.setSku("rtb-" + i + "-M");
+            product.getVariants().add(variant);
+            products.add(productRepository.save(product));
+        }
+        Customer customer = new Customer();
+        customer.setEmail(EMAIL);
+        customer.setPasswordHash("x");
+        customerRepository.save(customer);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void checkoutBatchesOrderLines() {
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setGuestEmail(EMAIL);
+        List<CreateOrderRequest.OrderItemRequest> items = new ArrayList<>();
+        for (int i = 0; i < LINES; i++) {
+            CreateOrderRequest.OrderItemRequest item = new CreateOrderRequest.OrderItemRequest();
+            item.setSku("rtb-" + i + "-M");
+            item.setQuantity(1);
+            items.add(item);
+        }
+        request.setItems(items);
+
+        orderService.createOrder(request);
+        entityManager.flush();
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(1 + LINES);
+        // SKU lookup + 15 decrements + up to 2 nextval + order insert + one batch of lines
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(1 + LINES + 2 + 1 + 1);
+    }
+
+    @Test
+    void cartUpdateBatchesCartLines() {
+        cartService.updateCart(EMAIL, cartOf(1));
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        cartService.updateCart(EMAIL, cartOf(2));
+        entityManager.flush();
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(LINES);
+        // customer + cart + delete + items collection + products + nextval + one batch of lines
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(7);
+    }
+
+    private UpdateCartRequest cartOf(int quantity) {
+        UpdateCartRequest request = new UpdateCartRequest();
+        for (Product product : products) {
+            CartItemRequest item = new CartItemRequest();
+            item.setProductId(product.getId());
+            item.setQuantity(quantity);
+            item.setSize("M");
+            item.setSku(product.getId() + "-M");
+            request.getItems().add(item);
+        }
+        return request;
+    }
+}
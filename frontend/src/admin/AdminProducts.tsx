@@ -526,7 +526,7 @@ export default function AdminProducts() {
                     <td className="py-3 px-4 flex items-center gap-3">
                       {p.imageUrl ? (
                         <img
-                          src={p.imageUrl}
+                          src={p.thumbnailUrl || p.imageUrl}
                           alt=""
                           className="w-10 h-12 object-cover bg-mosaik-gray-soft dark:bg-mosaik-dark-bg"
                         />
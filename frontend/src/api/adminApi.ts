@@ -30,13 +30,12 @@ export async function adminFetch<T>(
   return res.json()
 }
 
-export async function uploadImage(file: File): Promise<{ url: string }> {
-  const formData = new FormData()
-  formData.append('file', file)
+export async function uploadImage(file: File): Promise<{ url: string; jobId?: string }> {
+  // Sent as the raw request body so the server streams it to disk without multipart buffering
   const res = await fetch(`${API_BASE}/upload`, {
     method: 'POST',
-    headers: getAuthHeader(),
-    body: formData,
+    headers: { 'Content-Type': file.type || 'image/jpeg', ...getAuthHeader() },
+    body: file,
   })
   if (res.status === 401) {
     localStorage.removeItem('admin_token')
@@ -63,7 +63,7 @@ export default function CartDrawer({ isOpen, onClose }: CartDrawerProps) {
               {items.map(({ product, quantity, size, sku }) => (
                 <li key={sku} className="flex gap-4 pb-4 border-b border-gray-100 dark:border-mosaik-dark-border last:border-0">
                   <img
-                    src={product.imageUrl}
+                    src={product.thumbnailUrl || product.imageUrl}
                     alt={product.name}
                     className="w-20 h-20 rounded-none object-cover bg-gray-100 dark:bg-mosaik-dark-border flex-shrink-0"
                   />
@@ -19,9 +19,10 @@ export default function ProductCard({ product, compact }: ProductCardProps) {
   const [imageErrors, setImageErrors] = useState<Record<number, boolean>>({})
   const [currentImageIndex, setCurrentImageIndex] = useState(0)
 
+  const primaryImage = product.cardImageUrl || product.imageUrl
   const imageUrls = product.additionalImageUrls
-    ? [product.imageUrl, ...product.additionalImageUrls.split(',').map((s) => s.trim())]
-    : [product.imageUrl]
+    ? [primaryImage, ...product.additionalImageUrls.split(',').map((s) => s.trim())]
+    : [primaryImage]
   const hasMultipleImages = imageUrls.length > 1
 
   const currentSrc =
@@ -1,4 +1,4 @@
-import { useState, useEffect } from 'react'
+import { useState, useEffect, useMemo } from 'react'
 import { useNavigate } from 'react-router-dom'
 import { useCart } from '../context/CartContext'
 import { useAuth } from '../context/AuthContext'
@@ -19,6 +19,8 @@ export default function Checkout() {
   }, [isAuthenticated, profile?.email])
   const [loading, setLoading] = useState(false)
   const [error, setError] = useState<string | null>(null)
+  // Same key for resubmits of the same cart, so a retry after a timeout cannot place a second order
+  const idempotencyKey = useMemo(() => crypto.randomUUID(), [items, guestEmail])
 
   const handleSubmit = async (e: React.FormEvent) => {
     e.preventDefault()
@@ -28,7 +30,7 @@ export default function Checkout() {
     try {
       const orderResponse = await fetch(API_URL, {
         method: 'POST',
-        headers: { 'Content-Type': 'application/json' },
+        headers: { 'Content-Type': 'application/json', 'Idempotency-Key': idempotencyKey },
         body: JSON.stringify({
           guestEmail: guestEmail || undefined,
           items: items.map(({ product, quantity, size, sku }) => ({
@@ -54,7 +56,10 @@ export default function Checkout() {
         sessionPayload.guestEmail = guestEmail?.trim() || 'guest@example.com'
       }
 
-      const headers: Record<string, string> = { 'Content-Type': 'application/json' }
+      const headers: Record<string, string> = {
+        'Content-Type': 'application/json',
+        'Idempotency-Key': `${idempotencyKey}-session`,
+      }
       const token = localStorage.getItem('customer_token')
       if (token) {
         headers.Authorization = `Bearer ${token}`
@@ -12,6 +12,9 @@ export interface Product {
   price: number
   imageUrl: string
   additionalImageUrls?: string
+  thumbnailUrl?: string
+  cardImageUrl?: string
+  detailImageUrl?: string
   category: string
   color?: string
   sizes?: string